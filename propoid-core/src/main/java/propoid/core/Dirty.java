@@ -0,0 +1,149 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.core;
+
+import java.util.Locale;
+
+/**
+ * An aspect tracking changed properties of a {@link Propoid}, i.e. which were
+ * set since the last {@link #clean(Propoid)}.
+ * <p>
+ * Values of mutable types (e.g. collections, arrays or dates) might be changed
+ * in place, thus a property is considered changed as soon as such a value is
+ * got.
+ */
+public class Dirty extends AbstractAspect {
+
+	private long properties;
+
+	private Dirty(Propoid propoid) {
+		super(propoid);
+	}
+
+	@Override
+	public <T> T onSet(Property<T> property, T value) {
+		mark(property);
+
+		return super.onSet(property, value);
+	}
+
+	@Override
+	public <T> T onGet(Property<T> property, T value) {
+		value = super.onGet(property, value);
+
+		if (!immutable(value)) {
+			mark(property);
+		}
+
+		return value;
+	}
+
+	private void mark(Property<?> property) {
+		if (property.index < 64) {
+			properties |= 1l << property.index;
+		}
+	}
+
+	/**
+	 * Is the given property changed - properties beyond the 64th declared
+	 * property are always considered changed.
+	 */
+	public boolean isDirty(Property<?> property) {
+		return property.index >= 64
+				|| (properties & (1l << property.index)) != 0;
+	}
+
+	/**
+	 * Is any property changed.
+	 */
+	public boolean isDirty() {
+		return properties != 0;
+	}
+
+	private static boolean immutable(Object value) {
+		return value == null || value instanceof String
+				|| value instanceof Number || value instanceof Boolean
+				|| value instanceof Character || value instanceof Enum
+				|| value instanceof Locale || value instanceof Class
+				|| value instanceof Propoid;
+	}
+
+	/**
+	 * Get the tracking of changes of the given propoid.
+	 * 
+	 * @return tracking or {@code null} if changes are not tracked
+	 */
+	public static Dirty get(Propoid propoid) {
+		for (Aspect aspect : propoid.aspects()) {
+			if (aspect instanceof Dirty) {
+				return (Dirty) aspect;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Start tracking changes of the given propoid, forgetting all previous
+	 * changes.
+	 */
+	public static void clean(Propoid propoid) {
+		Dirty dirty = get(propoid);
+		if (dirty == null) {
+			new Dirty(propoid);
+		} else {
+			dirty.properties = 0;
+		}
+	}
+
+	/**
+	 * Get the changed properties of the given propoid.
+	 * 
+	 * @return bitmask of changed properties by index, {@code -1} if changes
+	 *         are not tracked
+	 * @see #restore(Propoid, long)
+	 */
+	public static long getProperties(Propoid propoid) {
+		Dirty dirty = get(propoid);
+
+		return dirty == null ? -1 : dirty.properties;
+	}
+
+	/**
+	 * Restore the changed properties of the given propoid, e.g. after a
+	 * failed write.
+	 * 
+	 * @param properties
+	 *            bitmask of changed properties by index
+	 * @see #getProperties(Propoid)
+	 */
+	public static void restore(Propoid propoid, long properties) {
+		Dirty dirty = get(propoid);
+		if (dirty == null) {
+			dirty = new Dirty(propoid);
+		}
+		dirty.properties = properties;
+	}
+
+	/**
+	 * Is the given property changed - if changes of its propoid are not
+	 * tracked, it is always considered changed.
+	 */
+	public static boolean isDirty(Propoid propoid, Property<?> property) {
+		Dirty dirty = get(propoid);
+
+		return dirty == null || dirty.isDirty(property);
+	}
+}
@@ -128,6 +128,28 @@ public class PropoidTest extends TestCase {
 		assertFalse(aspect.getCalled);
 	}
 
+	@Test
+	public void testDirty() throws Exception {
+		ExtendedFoo foo = new ExtendedFoo();
+		assertNull(Dirty.get(foo));
+		assertTrue(Dirty.isDirty(foo, foo.bar));
+
+		Dirty.clean(foo);
+		Dirty dirty = Dirty.get(foo);
+		assertFalse(dirty.isDirty());
+
+		foo.bar.set("BAR");
+		assertTrue(dirty.isDirty(foo.bar));
+		assertFalse(dirty.isDirty(foo.baz));
+
+		foo.baz.get();
+		assertFalse(dirty.isDirty(foo.baz));
+
+		Dirty.clean(foo);
+		assertSame(dirty, Dirty.get(foo));
+		assertFalse(dirty.isDirty());
+	}
+
 	public static class Foo extends Propoid {
 
 		public final Property<String> bar = property();
@@ -0,0 +1,569 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import propoid.core.Propoid;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * An asynchronous facade to a {@link Repository}.
+ * <p>
+ * Writes are executed in order of submission on a single writer thread,
+ * matching the single writer of SQLite, while reads are executed on a bounded
+ * pool of threads.
+ * <p>
+ * Work still queued is coalesced: a repeated write of the same
+ * {@link Propoid} directly following it or a repeated lookup of the same
+ * {@link Reference} returns the already queued {@link Future}, cancelling it
+ * cancels the work for all its callers. Writes are never reordered by
+ * coalescing.
+ * <p>
+ * {@link Callback}s are notified on the main thread, unless the work was
+ * cancelled.
+ * <p>
+ * Optionally writes can be grouped into a single transaction, see
+ * {@link #setGroupCommit(long, int)}.
+ */
+public class AsyncRepository {
+
+	public final Repository repository;
+
+	private final ScheduledThreadPoolExecutor writer;
+
+	private final ExecutorService readers;
+
+	private final Handler handler;
+
+	private final Map<Key, Work<?>> queued = new HashMap<Key, Work<?>>();
+
+	/**
+	 * The most recently submitted write.
+	 */
+	private Work<?> lastWrite;
+
+	private long groupWindow;
+
+	private int groupSize;
+
+	/**
+	 * The currently open group of writes.
+	 */
+	private Group group;
+
+	/**
+	 * Asynchronous access to the given repository with two reading threads.
+	 */
+	public AsyncRepository(Repository repository) {
+		this(repository, 2);
+	}
+
+	/**
+	 * Asynchronous access to the given repository.
+	 * 
+	 * @param repository
+	 *            repository to access
+	 * @param readers
+	 *            maximum number of reading threads
+	 */
+	public AsyncRepository(Repository repository, int readers) {
+		this.repository = repository;
+
+		this.writer = new ScheduledThreadPoolExecutor(1);
+		this.writer.setKeepAliveTime(10, TimeUnit.SECONDS);
+		this.writer.allowCoreThreadTimeOut(true);
+		this.readers = pool(readers);
+
+		this.handler = new Handler(Looper.getMainLooper());
+	}
+
+	private static ExecutorService pool(int threads) {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+				10, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Enable group commit, default is disabled.
+	 * <p>
+	 * Writes submitted within the given window of time are applied in a single
+	 * transaction, thus saving the cost of a commit for each write. A group is
+	 * applied early, when it reaches the given size or on {@link #flush()}.
+	 * <p>
+	 * Durability: The {@link Future} of a write is completed (and its
+	 * {@link Callback} notified) only after the transaction of its group was
+	 * committed. Writes whose future is not completed yet, are lost if the
+	 * process dies, so callers requiring durability have to wait for
+	 * completion. If any write of a group fails, the transaction is rolled
+	 * back and all writes of the group are applied again, each in a
+	 * transaction of its own.
+	 * 
+	 * @param window
+	 *            window of time in milliseconds, {@code 0} to disable
+	 * @param size
+	 *            maximum number of writes in a group
+	 */
+	public synchronized void setGroupCommit(long window, int size) {
+		if (window < 0 || size < 1) {
+			throw new IllegalArgumentException();
+		}
+
+		flush();
+
+		this.groupWindow = window;
+		this.groupSize = size;
+	}
+
+	/**
+	 * Apply the currently open group of writes without waiting for the end of
+	 * its window.
+	 * 
+	 * @see #setGroupCommit(long, int)
+	 */
+	public synchronized void flush() {
+		if (group != null) {
+			writer.execute(group);
+
+			group = null;
+		}
+	}
+
+	/**
+	 * Insert asynchronously.
+	 * 
+	 * @see Repository#insert(Propoid)
+	 */
+	public Future<Void> insert(final Propoid propoid, Callback<Void> callback) {
+		return write(new Key("insert", propoid), new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				repository.insert(propoid);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Update asynchronously.
+	 * 
+	 * @see Repository#update(Propoid)
+	 */
+	public Future<Void> update(final Propoid propoid, Callback<Void> callback) {
+		return write(new Key("update", propoid), new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				repository.update(propoid);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Merge asynchronously.
+	 * 
+	 * @see Repository#merge(Propoid)
+	 */
+	public Future<Void> merge(final Propoid propoid, Callback<Void> callback) {
+		return write(new Key("merge", propoid), new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				repository.merge(propoid);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Delete asynchronously.
+	 * 
+	 * @see Repository#delete(Propoid)
+	 */
+	public Future<Void> delete(final Propoid propoid, Callback<Void> callback) {
+		return write(new Key("delete", propoid), new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				repository.delete(propoid);
+				return null;
+			}
+		}, callback);
+	}
+
+	/**
+	 * Lookup asynchronously.
+	 * 
+	 * @see Repository#lookup(Reference)
+	 */
+	public <P extends Propoid> Future<P> lookup(final Reference<P> reference,
+			Callback<P> callback) {
+		return read(new Key("lookup", reference), new Callable<P>() {
+			@Override
+			public P call() throws Exception {
+				return repository.lookup(reference);
+			}
+		}, callback);
+	}
+
+	/**
+	 * List asynchronously - all propoids are read before the callback is
+	 * notified, so the resulting list does not have to be closed.
+	 * 
+	 * @see Match#list(Range, Order...)
+	 */
+	public <P extends Propoid> Future<List<P>> list(final Match<P> match,
+			final Range range, Callback<List<P>> callback,
+			final Order... ordering) {
+		return read(null, new Callable<List<P>>() {
+			@Override
+			public List<P> call() throws Exception {
+				return new ArrayList<P>(match.list(range, ordering));
+			}
+		}, callback);
+	}
+
+	/**
+	 * Count asynchronously.
+	 * 
+	 * @see Match#count()
+	 */
+	public Future<Long> count(final Match<?> match, Callback<Long> callback) {
+		return read(null, new Callable<Long>() {
+			@Override
+			public Long call() throws Exception {
+				return match.count();
+			}
+		}, callback);
+	}
+
+	/**
+	 * Read asynchronously.
+	 * 
+	 * @param callable
+	 *            reading from {@link #repository}
+	 * @param callback
+	 *            optional callback
+	 */
+	public <T> Future<T> read(Callable<T> callable, Callback<T> callback) {
+		return read(null, callable, callback);
+	}
+
+	/**
+	 * Write asynchronously.
+	 * 
+	 * @param callable
+	 *            writing to {@link #repository}
+	 * @param callback
+	 *            optional callback
+	 */
+	public <T> Future<T> write(Callable<T> callable, Callback<T> callback) {
+		return write(null, callable, callback);
+	}
+
+	private <T> Future<T> read(Key key, Callable<T> callable,
+			Callback<T> callback) {
+		return submit(readers, key, callable, callback);
+	}
+
+	private synchronized <T> Future<T> write(Key key, Callable<T> callable,
+			Callback<T> callback) {
+		if (key != null && queued.get(key) != lastWrite) {
+			// other writes are queued in between, coalescing would reorder
+			queued.remove(key);
+		}
+
+		Work<T> work = coalesce(key, callable, callback);
+		lastWrite = work;
+
+		if (work.queued == false) {
+			work.queued = true;
+
+			if (groupWindow == 0) {
+				writer.execute(work);
+			} else {
+				if (group == null) {
+					group = new Group();
+
+					writer.schedule(group, groupWindow, TimeUnit.MILLISECONDS);
+				}
+
+				group.works.add(work);
+				if (group.works.size() >= groupSize) {
+					flush();
+				}
+			}
+		}
+
+		return work;
+	}
+
+	private synchronized <T> Future<T> submit(ExecutorService executor,
+			Key key, Callable<T> callable, Callback<T> callback) {
+		Work<T> work = coalesce(key, callable, callback);
+
+		if (work.queued == false) {
+			work.queued = true;
+
+			executor.execute(work);
+		}
+
+		return work;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> Work<T> coalesce(Key key, Callable<T> callable,
+			Callback<T> callback) {
+		if (key != null) {
+			Work<T> work = (Work<T>) queued.get(key);
+			if (work != null) {
+				work.add(callback);
+				return work;
+			}
+		}
+
+		Work<T> work = new Work<T>(key, callable);
+		work.add(callback);
+		if (key != null) {
+			queued.put(key, work);
+		}
+
+		return work;
+	}
+
+	private synchronized void dequeue(Work<?> work) {
+		if (work.key != null && queued.get(work.key) == work) {
+			queued.remove(work.key);
+		}
+	}
+
+	/**
+	 * Close - queued work is still executed, but no new work is accepted.
+	 * <p>
+	 * Note that {@link #repository} is not closed.
+	 */
+	public void close() {
+		flush();
+
+		writer.shutdown();
+		readers.shutdown();
+	}
+
+	/**
+	 * Queued work.
+	 */
+	private class Work<T> extends FutureTask<T> {
+
+		final Key key;
+
+		private final Callable<T> callable;
+
+		private final List<Callback<T>> callbacks = new ArrayList<Callback<T>>();
+
+		boolean queued;
+
+		private T result;
+
+		Work(Key key, Callable<T> callable) {
+			super(callable);
+
+			this.key = key;
+			this.callable = callable;
+		}
+
+		/**
+		 * Call as part of a {@link Group}, the result is not set until
+		 * {@link #commit()}.
+		 */
+		void call() throws Exception {
+			dequeue(this);
+
+			result = callable.call();
+		}
+
+		void commit() {
+			set(result);
+		}
+
+		synchronized void add(Callback<T> callback) {
+			if (callback != null) {
+				callbacks.add(callback);
+			}
+		}
+
+		@Override
+		public void run() {
+			// no longer coalesced
+			dequeue(this);
+
+			super.run();
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			dequeue(this);
+
+			return super.cancel(mayInterruptIfRunning);
+		}
+
+		@Override
+		protected void done() {
+			if (isCancelled()) {
+				return;
+			}
+
+			final List<Callback<T>> callbacks;
+			synchronized (this) {
+				if (this.callbacks.isEmpty()) {
+					return;
+				}
+				callbacks = new ArrayList<Callback<T>>(this.callbacks);
+			}
+
+			T result = null;
+			Throwable failure = null;
+			try {
+				result = get();
+			} catch (ExecutionException ex) {
+				failure = ex.getCause();
+			} catch (Exception ex) {
+				failure = ex;
+			}
+
+			final T finalResult = result;
+			final Throwable finalFailure = failure;
+			handler.post(new Runnable() {
+				@Override
+				public void run() {
+					for (Callback<T> callback : callbacks) {
+						if (finalFailure == null) {
+							callback.onSuccess(finalResult);
+						} else {
+							callback.onFailure(finalFailure);
+						}
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * A group of writes applied in a single transaction.
+	 */
+	private class Group implements Runnable {
+
+		final List<Work<?>> works = new ArrayList<Work<?>>();
+
+		private boolean applied;
+
+		@Override
+		public void run() {
+			synchronized (AsyncRepository.this) {
+				if (group == this) {
+					// window ended
+					group = null;
+				}
+
+				if (applied) {
+					// flushed already
+					return;
+				}
+				applied = true;
+			}
+
+			try {
+				repository.transactional(new Transaction() {
+					@Override
+					public void doTransactional() {
+						for (Work<?> work : works) {
+							if (!work.isCancelled()) {
+								try {
+									work.call();
+								} catch (RuntimeException ex) {
+									throw ex;
+								} catch (Exception ex) {
+									throw new RepositoryException(ex);
+								}
+							}
+						}
+					}
+				});
+			} catch (RuntimeException ex) {
+				// rows and changes of all written propoids, including cascaded
+				// ones, were restored by the repository, so apply each on its own
+				for (Work<?> work : works) {
+					work.run();
+				}
+				return;
+			}
+
+			for (Work<?> work : works) {
+				work.commit();
+			}
+		}
+	}
+
+	/**
+	 * Key of coalesced work - propoids are compared by identity, all other
+	 * targets by equality.
+	 */
+	private static class Key {
+
+		private final String operation;
+
+		private final Object target;
+
+		Key(String operation, Object target) {
+			this.operation = operation;
+			this.target = target;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof Key) {
+				Key other = (Key) o;
+
+				if (target instanceof Propoid) {
+					return operation.equals(other.operation)
+							&& target == other.target;
+				}
+				return operation.equals(other.operation)
+						&& target.equals(other.target);
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			if (target instanceof Propoid) {
+				return operation.hashCode() ^ System.identityHashCode(target);
+			}
+			return operation.hashCode() ^ target.hashCode();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db;
+
+import propoid.core.Propoid;
+
+/**
+ * Caching of looked up {@link Propoid}s.
+ * <p>
+ * A cached propoid is the very same instance for all callers of
+ * {@link Repository#lookup(Reference)}: a change to it is visible to all
+ * others even before it is updated, and is lost for all of them if it is
+ * refreshed. Callers with unsaved changes must not share propoids, i.e. use
+ * a {@link Repository} with the default caching instead.
+ * <p>
+ * Invalidations of changes inside a transaction are deferred until the
+ * transaction has ended.
+ * 
+ * @see Repository#invalidate(Propoid)
+ */
+public interface Caching extends Setting {
+
+	/**
+	 * Get a cached propoid.
+	 * 
+	 * @param repository
+	 *            repository
+	 * @param reference
+	 *            reference of propoid
+	 * @return propoid or {@code null} if not cached
+	 */
+	public Propoid get(Repository repository, Reference<?> reference);
+
+	/**
+	 * A propoid was looked up.
+	 * 
+	 * @param repository
+	 *            repository
+	 * @param reference
+	 *            reference the propoid was looked up with
+	 * @param propoid
+	 *            propoid
+	 */
+	public void put(Repository repository, Reference<?> reference,
+			Propoid propoid);
+
+	/**
+	 * A propoid was changed or deleted.
+	 * 
+	 * @param repository
+	 *            repository
+	 * @param propoid
+	 *            propoid
+	 */
+	public void invalidate(Repository repository, Propoid propoid);
+
+	/**
+	 * Propoids of a class were changed or deleted.
+	 * 
+	 * @param repository
+	 *            repository
+	 * @param clazz
+	 *            class of propoids, {@code Propoid.class} for all
+	 */
+	public void invalidate(Repository repository,
+			Class<? extends Propoid> clazz);
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db;
+
+/**
+ * Instrumentation of operations on a {@link Repository}.
+ * <p>
+ * A list of propoids is reported when it is closed, with the rows hydrated
+ * until then. A list that is never closed is not reported at all, see
+ * {@link Match#list(Range, Order...)}.
+ * 
+ * @see propoid.db.operation.Operation
+ */
+public interface Instrumentation extends Setting {
+
+	/**
+	 * A query is about to be executed by a {@link Match}.
+	 * 
+	 * @param repository
+	 *            repository
+	 * @param operation
+	 *            name of operation, e.g. {@code "Query.list"}
+	 * @param sql
+	 *            SQL to execute
+	 */
+	public void onQuery(Repository repository, String operation, String sql);
+
+	/**
+	 * SQL was executed by an operation.
+	 * 
+	 * @param repository
+	 *            repository
+	 * @param operation
+	 *            name of operation, e.g. {@code "Insert"} or
+	 *            {@code "Query.list"}
+	 * @param sql
+	 *            executed SQL
+	 * @param arguments
+	 *            count of arguments
+	 * @param rows
+	 *            count of retrieved rows, or {@code -1} if not applicable
+	 * @param sqlTime
+	 *            nanoseconds spent executing the SQL
+	 * @param hydrationTime
+	 *            nanoseconds spent hydrating propoids from retrieved rows
+	 */
+	public void onExecuted(Repository repository, String operation,
+			String sql, int arguments, int rows, long sqlTime,
+			long hydrationTime);
+}
@@ -93,6 +93,59 @@ public interface Match<P extends Propoid> {
 	 */
 	public References<P> references();
 
+	/**
+	 * Ids of all matched propoids.
+	 * 
+	 * @param ordering
+	 *            order of ids
+	 * @return ids
+	 */
+	public long[] ids(Order... ordering);
+
+	/**
+	 * Values of a property of all matched propoids as longs, querying the
+	 * property's column only.
+	 * <p>
+	 * The raw column values are returned without any mapping, {@code null} is
+	 * returned as {@code 0}.
+	 * 
+	 * @param property
+	 *            property of the prototype
+	 * @param ordering
+	 *            order of values
+	 * @return values
+	 */
+	public long[] longs(Property<?> property, Order... ordering);
+
+	/**
+	 * Values of a property of all matched propoids as doubles, querying the
+	 * property's column only.
+	 * <p>
+	 * The raw column values are returned without any mapping, {@code null} is
+	 * returned as {@code 0}.
+	 * 
+	 * @param property
+	 *            property of the prototype
+	 * @param ordering
+	 *            order of values
+	 * @return values
+	 */
+	public double[] doubles(Property<?> property, Order... ordering);
+
+	/**
+	 * Values of a property of all matched propoids as strings, querying the
+	 * property's column only.
+	 * <p>
+	 * The raw column values are returned without any mapping.
+	 * 
+	 * @param property
+	 *            property of the prototype
+	 * @param ordering
+	 *            order of values
+	 * @return values
+	 */
+	public String[] strings(Property<?> property, Order... ordering);
+
 	/**
 	 * The first {@link Propoid} matched.
 	 * 
@@ -166,4 +219,76 @@ public interface Match<P extends Propoid> {
 	 *            value
 	 */
 	public <T> void set(Property<T> property, T value);
+
+	/**
+	 * Prefetch the related {@link Propoid} of a to-one property when listing.
+	 * <p>
+	 * Instead of a single lookup for each listed propoid, related propoids are
+	 * looked up in batches for a window of consecutive rows.
+	 * 
+	 * @param property
+	 *            property of the prototype to prefetch
+	 * @return this
+	 */
+	public Match<P> prefetch(Property<? extends Propoid> property);
+
+	/**
+	 * Select the columns of the given properties only when listing.
+	 * <p>
+	 * All other properties are loaded lazily on first access. An update of a
+	 * propoid leaves the columns of properties not loaded untouched.
+	 * 
+	 * @param properties
+	 *            properties of the prototype to select
+	 * @return this
+	 * @see propoid.db.aspect.LazyColumn
+	 */
+	public Match<P> select(Property<?>... properties);
+
+	/**
+	 * Stream all matched {@link Propoid}s in order of insertion.
+	 * <p>
+	 * Propoids are queried forward only in chunks of the given size, each
+	 * continuing after the last propoid of the previous chunk. In contrast to
+	 * {@link #list(Order...)} memory is bounded by the chunk size, independent
+	 * of the count of matched propoids.
+	 * 
+	 * @param batchSize
+	 *            count of propoids to query at once
+	 * @return all matched propoids
+	 * @see Range#afterLimit(Propoid, int, Order...)
+	 */
+	public Iterable<P> stream(int batchSize);
+
+	/**
+	 * Visit all matched {@link Propoid}s in order of insertion.
+	 * 
+	 * @param visitor
+	 *            visitor
+	 * @see #stream(int)
+	 */
+	public void forEach(Visitor<P> visitor);
+
+	/**
+	 * Scan all matched {@link Propoid}s.
+	 * <p>
+	 * In contrast to {@link #forEach(Visitor)} a single propoid instance (per
+	 * class) is reused for all rows, its id, properties and relations are
+	 * replaced in place. Thus the visitor must not hold on to the visited
+	 * propoids.
+	 * 
+	 * @param visitor
+	 *            visitor
+	 */
+	public void scan(Visitor<P> visitor);
+
+	/**
+	 * Explain how matched {@link Propoid}s are listed, i.e. the plan of the
+	 * exact query executed by {@link #list(Order...)}.
+	 * 
+	 * @param ordering
+	 *            order of listing
+	 * @return plan
+	 */
+	public QueryPlan explain(Order... ordering);
 }
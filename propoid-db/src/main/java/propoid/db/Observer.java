@@ -22,6 +22,8 @@ import propoid.db.operation.Operation;
 
 /**
  * Observer to changes on {@link Propoid}s.
+ *
+ * @see TransactionObserver
  */
 public interface Observer extends Setting {
 
@@ -19,7 +19,9 @@ import java.util.Set;
 
 import propoid.core.Property;
 import propoid.core.Propoid;
+import propoid.db.operation.FullText;
 import propoid.db.operation.Operation.Aliaser;
+import propoid.db.operation.Operation.Arguments;
 
 /**
  * Order of an index or query.
@@ -96,6 +98,17 @@ public class Order {
 		return sql;
 	}
 
+	/**
+	 * Get SQL representation of this order to be used in queries.
+	 * 
+	 * @param arguments
+	 *            arguments to collect
+	 */
+	public SQL toOrderBy(Repository repository, Aliaser aliaser,
+			Arguments arguments) {
+		return toOrderBy(aliaser);
+	}
+
 	public SQL toOrderBy(Aliaser aliaser) {
 		if (ascending == null) {
 			return new SQL("random()");
@@ -216,4 +229,95 @@ public class Order {
 	public static Order descending(Property<?>... property) {
 		return new Order(false, property);
 	}
+
+	/**
+	 * Descending by relevance for a full-text query, i.e. the number of
+	 * matched terms.
+	 * 
+	 * @param property
+	 *            property indexed for full-text search
+	 * @param query
+	 *            full-text query
+	 * @see Repository#indexFullText(Property)
+	 * @see Where#matches(Property, String)
+	 */
+	public static Order relevance(Property<String> property, String query) {
+		return new Relevance(property, query);
+	}
+
+	static class Relevance extends Order {
+
+		private final Property<String> text;
+
+		private final String query;
+
+		Relevance(Property<String> text, String query) {
+			super(false);
+
+			this.text = text;
+			this.query = query;
+		}
+
+		@Override
+		public SQL toIndex(Repository repository) {
+			throw new IllegalStateException();
+		}
+
+		@Override
+		public SQL toOrderBy(Repository repository, Aliaser aliaser,
+				Arguments arguments) {
+			String fts = FullText.table(repository, text);
+
+			SQL offsets = new SQL();
+			offsets.raw("offsets(");
+			offsets.escaped(fts);
+			offsets.raw(")");
+
+			// offsets are reported as four integers per matched term
+			SQL sql = new SQL();
+			sql.raw("(SELECT (length(");
+			sql.append(offsets);
+			sql.raw(") - length(replace(");
+			sql.append(offsets);
+			sql.raw(", ' ', '')) + 1) / 4 FROM ");
+			sql.escaped(fts);
+			sql.raw(" WHERE docid = ");
+			sql.raw(aliaser.alias(text.propoid));
+			sql.raw("._id AND ");
+			sql.escaped(text.meta().name);
+			sql.raw(" MATCH ?) desc");
+
+			arguments.add(query);
+
+			return sql;
+		}
+
+		@Override
+		public SQL toOrderBy(Aliaser aliaser) {
+			throw new IllegalStateException();
+		}
+
+		@Override
+		public int hashCode() {
+			return text.meta().hashCode() * 13 + query.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Relevance)) {
+				return false;
+			}
+
+			Relevance other = (Relevance) o;
+
+			return this.text.meta() == other.text.meta()
+					&& this.query.equals(other.query);
+		}
+
+		@Override
+		public String toString() {
+			return text.meta().owner.getSimpleName() + "." + text.meta().name
+					+ ".RELEVANCE";
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import android.database.Cursor;
+
+/**
+ * The plan of a query as reported by SQLite's {@code EXPLAIN QUERY PLAN}.
+ * 
+ * @see Match#explain(Order...)
+ */
+public class QueryPlan {
+
+	private static final Pattern TABLE = Pattern
+			.compile("^(?:SCAN|SEARCH) (?:TABLE )?(\\S+)");
+
+	/**
+	 * An escaped table followed by its alias.
+	 */
+	private static final Pattern ALIAS = Pattern
+			.compile("\\[([^\\]]+)\\] (\\w+)\\b");
+
+	/**
+	 * The explained SQL.
+	 */
+	public final String sql;
+
+	/**
+	 * The steps of this plan in order of execution.
+	 */
+	public final List<Step> steps;
+
+	/**
+	 * Read a plan from the result of {@code EXPLAIN QUERY PLAN}.
+	 * 
+	 * @param sql
+	 *            explained SQL
+	 * @param cursor
+	 *            cursor on the result of the explanation
+	 */
+	public QueryPlan(String sql, Cursor cursor) {
+		this.sql = sql;
+
+		int id = cursor.getColumnIndex("id");
+		if (id == -1) {
+			// SQLite before 3.24
+			id = cursor.getColumnIndex("selectid");
+		}
+		int parent = cursor.getColumnIndex("parent");
+		int detail = cursor.getColumnIndex("detail");
+
+		List<Step> steps = new ArrayList<Step>();
+		while (cursor.moveToNext()) {
+			steps.add(new Step(id == -1 ? 0 : cursor.getInt(id),
+					parent == -1 ? 0 : cursor.getInt(parent), cursor
+							.getString(detail)));
+		}
+		this.steps = Collections.unmodifiableList(steps);
+	}
+
+	/**
+	 * Get all steps scanning a whole table without the help of an index.
+	 */
+	public List<Step> getFullScans() {
+		List<Step> scans = new ArrayList<Step>();
+		for (Step step : steps) {
+			if (step.isFullScan()) {
+				scans.add(step);
+			}
+		}
+		return scans;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append(sql);
+		for (Step step : steps) {
+			builder.append('\n');
+			builder.append(step.detail);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * A single step of a plan.
+	 */
+	public class Step {
+
+		public final int id;
+
+		public final int parent;
+
+		public final String detail;
+
+		Step(int id, int parent, String detail) {
+			this.id = id;
+			this.parent = parent;
+			this.detail = detail;
+		}
+
+		/**
+		 * Does this step scan a table, i.e. visits all its rows.
+		 */
+		public boolean isScan() {
+			return detail.startsWith("SCAN ");
+		}
+
+		/**
+		 * Does this step scan a table without the help of an index.
+		 */
+		public boolean isFullScan() {
+			return isScan() && !detail.contains(" USING ")
+					&& !detail.contains("VIRTUAL TABLE")
+					&& !detail.startsWith("SCAN SUBQUERY")
+					&& !detail.startsWith("SCAN CONSTANT ROW");
+		}
+
+		/**
+		 * Get the table of this step.
+		 * <p>
+		 * Recent SQLite versions report the alias of a table only, which is
+		 * resolved against the explained SQL.
+		 * 
+		 * @return table or {@code null} if not searching or scanning a table
+		 */
+		public String getTable() {
+			Matcher matcher = TABLE.matcher(detail);
+			if (!matcher.find()) {
+				return null;
+			}
+
+			String name = matcher.group(1);
+			if (name.startsWith("[") && name.endsWith("]")) {
+				return name.substring(1, name.length() - 1);
+			}
+
+			Matcher alias = ALIAS.matcher(sql);
+			while (alias.find()) {
+				if (alias.group(2).equals(name)) {
+					return alias.group(1);
+				}
+			}
+			return name;
+		}
+
+		@Override
+		public String toString() {
+			return detail;
+		}
+	}
+}
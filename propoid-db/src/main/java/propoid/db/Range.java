@@ -15,7 +15,14 @@
  */
 package propoid.db;
 
+import java.util.Arrays;
+
+import propoid.core.Property;
 import propoid.core.Propoid;
+import propoid.db.aspect.Row;
+import propoid.db.mapping.Mapper;
+import propoid.db.operation.Operation.Aliaser;
+import propoid.db.operation.Operation.Arguments;
 
 /**
  * Range of a query match.
@@ -34,29 +41,179 @@ public class Range {
 	 */
 	public final int limit;
 
+	/**
+	 * The propoid to continue after, may be {@code null}.
+	 */
+	public final Propoid after;
+
+	private final Order[] ordering;
+
 	Range(int offset, int limit) {
 		this.offset = offset;
 		this.limit = limit;
+		this.after = null;
+		this.ordering = null;
+	}
+
+	Range(Propoid after, int limit, Order[] ordering) {
+		if (Row.getID(after) == Row.TRANSIENT) {
+			throw new IllegalArgumentException("cannot continue after transient propoid");
+		}
+		for (Order order : ordering) {
+			if (order.ascending == null) {
+				throw new IllegalArgumentException("cannot continue random order");
+			}
+			if (order instanceof Order.Relevance) {
+				throw new IllegalArgumentException("cannot continue relevance order");
+			}
+		}
+
+		this.offset = 0;
+		this.limit = limit;
+		this.after = after;
+		this.ordering = ordering;
 	}
 
 	/**
 	 * Get SQL representation of this range.
+	 * 
+	 * @param arguments
+	 *            arguments to collect
 	 */
-	public SQL toLimit(Repository repository) {
+	public SQL toLimit(Repository repository, Arguments arguments) {
 		if (offset == 0 && limit == Integer.MAX_VALUE) {
 			return new SQL("");
 		}
 
 		SQL sql = new SQL();
 
-		sql.raw(" limit ");
-		sql.raw(Integer.toString(offset));
-		sql.raw(",");
-		sql.raw(Integer.toString(limit));
+		sql.raw(" limit ?,?");
+		arguments.add(Long.valueOf(offset));
+		arguments.add(Long.valueOf(limit));
+
+		return sql;
+	}
+
+	/**
+	 * Get SQL representation of the condition of this range, i.e. to continue
+	 * after a propoid in the given ordering, {@code _id} ascending acts as the
+	 * last sort key.
+	 * 
+	 * @return condition or {@code null} if this range does not continue after
+	 *         a propoid
+	 * @see #after(Propoid, Order...)
+	 */
+	public SQL toWhere(Repository repository, Propoid propoid, Arguments arguments,
+					   Aliaser aliaser, Order... ordering) {
+		if (after == null) {
+			return null;
+		}
+
+		if (!Arrays.equals(this.ordering, ordering)) {
+			throw new RepositoryException("range must be listed in its ordering");
+		}
+
+		int count = ordering.length + 1;
+		SQL[] columns = new SQL[count];
+		boolean[] ascending = new boolean[count];
+		Object[] values = new Object[count];
+
+		for (int o = 0; o < ordering.length; o++) {
+			Order order = ordering[o];
+
+			ascending[o] = order.ascending;
+			columns[o] = new SQL();
+			if (order.property.length == 0) {
+				columns[o].raw(aliaser.alias(propoid));
+				columns[o].raw("._id");
+
+				values[o] = Row.getID(after);
+			} else {
+				Property<?> last = order.property[order.property.length - 1];
+
+				columns[o].raw(aliaser.alias(last.propoid));
+				columns[o].raw(".");
+				columns[o].escaped(last.meta().name);
+				if (last.meta().type == String.class) {
+					columns[o].raw(" COLLATE NOCASE");
+				}
+
+				values[o] = value(repository, order.property);
+			}
+		}
+		ascending[ordering.length] = true;
+		columns[ordering.length] = new SQL(aliaser.alias(propoid) + "._id");
+		values[ordering.length] = Row.getID(after);
+
+		// (c0 > v0) OR (c0 = v0 AND c1 > v1) OR ...
+		SQL sql = new SQL();
+		sql.raw("(");
+		for (int c = 0; c < count; c++) {
+			sql.separate(" OR ");
+			sql.raw("(");
+			for (int e = 0; e < c; e++) {
+				sql.append(columns[e]);
+				if (values[e] == null) {
+					sql.raw(" IS NULL");
+				} else {
+					sql.raw(" = ?");
+					arguments.add(values[e]);
+				}
+				sql.raw(" AND ");
+			}
+			if (values[c] == null) {
+				if (ascending[c]) {
+					// nulls are first
+					sql.append(columns[c]);
+					sql.raw(" IS NOT NULL");
+				} else {
+					// nulls are last
+					sql.raw("1 = 0");
+				}
+			} else {
+				if (ascending[c]) {
+					sql.append(columns[c]);
+					sql.raw(" > ?");
+				} else {
+					sql.raw("(");
+					sql.append(columns[c]);
+					sql.raw(" < ? OR ");
+					sql.append(columns[c]);
+					sql.raw(" IS NULL)");
+				}
+				arguments.add(values[c]);
+			}
+			sql.raw(")");
+		}
+		sql.raw(")");
 
 		return sql;
 	}
 
+	/**
+	 * Get the argument for the value of the last property in the given path,
+	 * starting from the propoid to continue after.
+	 */
+	@SuppressWarnings("unchecked")
+	private Object value(Repository repository, Property<?>[] path) {
+		Object value = after;
+		for (Property<?> property : path) {
+			if (value == null) {
+				break;
+			}
+			value = property.meta().get((Propoid) value).get();
+		}
+
+		if (value == null) {
+			return null;
+		}
+
+		Property<Object> last = (Property<Object>) path[path.length - 1];
+		Mapper<Object> mapper = (Mapper<Object>) repository.mapping.getMapper(
+				repository, last);
+		return mapper.argument(last, repository, value);
+	}
+
 	/**
 	 * All {@link Propoid}s.
 	 */
@@ -75,4 +232,36 @@ public class Range {
 	public static Range limit(int limit) {
 		return new Range(0, limit);
 	}
+
+	/**
+	 * All {@link Propoid}s after the given one, i.e. keyset pagination.
+	 * <p>
+	 * The range has to be listed in the given ordering.
+	 * 
+	 * @param after
+	 *            propoid to continue after, e.g. the last one of the previous
+	 *            page
+	 * @param ordering
+	 *            ordering of listing
+	 */
+	public static Range after(Propoid after, Order... ordering) {
+		return new Range(after, Integer.MAX_VALUE, ordering);
+	}
+
+	/**
+	 * Limited {@link Propoid}s after the given one, i.e. keyset pagination.
+	 * <p>
+	 * The range has to be listed in the given ordering.
+	 * 
+	 * @param after
+	 *            propoid to continue after, e.g. the last one of the previous
+	 *            page
+	 * @param limit
+	 *            limit
+	 * @param ordering
+	 *            ordering of listing
+	 */
+	public static Range afterLimit(Propoid after, int limit, Order... ordering) {
+		return new Range(after, limit, ordering);
+	}
 }
\ No newline at end of file
@@ -17,12 +17,19 @@ package propoid.db;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import propoid.core.Dirty;
+import propoid.core.Property;
 import propoid.core.Propoid;
 import propoid.db.aspect.Row;
+import propoid.db.caching.DefaultCaching;
+import propoid.db.instrumentation.DefaultInstrumentation;
 import propoid.db.cascading.DefaultCascading;
 import propoid.db.factory.DefaultFactory;
 import propoid.db.locator.FileLocator;
@@ -30,12 +37,15 @@ import propoid.db.mapping.DefaultMapping;
 import propoid.db.naming.DefaultNaming;
 import propoid.db.observer.DefaultObserver;
 import propoid.db.operation.Delete;
+import propoid.db.operation.FullText;
 import propoid.db.operation.Index;
 import propoid.db.operation.Insert;
 import propoid.db.operation.Lookup;
+import propoid.db.operation.Plans;
 import propoid.db.operation.Query;
 import propoid.db.operation.Refresh;
 import propoid.db.operation.Schema;
+import propoid.db.operation.Statements;
 import propoid.db.operation.Update;
 import propoid.db.version.DefaultVersioning;
 import android.content.Context;
@@ -51,6 +61,8 @@ import android.database.sqlite.SQLiteDatabase;
  * <li>{@link DefaultFactory}</li>
  * <li>{@link DefaultNaming}</li>
  * <li>{@link DefaultMapping}</li>
+ * <li>{@link DefaultCaching}</li>
+ * <li>{@link DefaultInstrumentation}</li>
  * </ul>
  */
 public class Repository {
@@ -69,10 +81,20 @@ public class Repository {
 
 	public final Mapping mapping;
 
+	public final Caching caching;
+
+	public final Instrumentation instrumentation;
+
 	private final Observer observer;
 
 	private Set<Class<? extends Propoid>> schemas = new HashSet<Class<? extends Propoid>>();
 
+	private Statements statements = new Statements();
+
+	private Plans plans = new Plans();
+
+	private Transactions transactions = new Transactions();
+
 	private SQLiteDatabase database;
 
 	/**
@@ -95,6 +117,7 @@ public class Repository {
 	 */
 	public Repository(Context context, Locator locator, Setting... settings) {
 
+		this.context = context;
 		this.locator = locator;
 
 		this.versioning = lookup(settings, Versioning.class,
@@ -105,6 +128,9 @@ public class Repository {
 		this.naming = lookup(settings, Naming.class, new DefaultNaming());
 		this.mapping = lookup(settings, Mapping.class, new DefaultMapping());
 		this.observer = lookup(settings, Observer.class, new DefaultObserver(context));
+		this.caching = lookup(settings, Caching.class, new DefaultCaching());
+		this.instrumentation = lookup(settings, Instrumentation.class,
+				new DefaultInstrumentation());
 
 		open();
 	}
@@ -146,13 +172,34 @@ public class Repository {
 		Factory factory = lookup(settings, Factory.class, this.factory);
 		Naming naming = lookup(settings, Naming.class, this.naming);
 		Mapping mapping = lookup(settings, Mapping.class, this.mapping);
+		Observer observer = lookup(settings, Observer.class, this.observer);
+		Caching caching = lookup(settings, Caching.class, this.caching);
+		Instrumentation instrumentation = lookup(settings,
+				Instrumentation.class, this.instrumentation);
 
 		Repository repository = new Repository(context, locator, versioning, cascading,
-				factory, naming, mapping);
+				factory, naming, mapping, observer, caching, instrumentation);
+
+		if (mapping == this.mapping) {
+			// performance optimization: since the same database is used, we
+			// can assume identical schemas
+			repository.schemas = this.schemas;
+		}
+
+		if (naming == this.naming) {
+			// identical naming results in identical statements
+			repository.statements = this.statements;
+		}
+
+		if (mapping == this.mapping) {
+			// identical mapping results in identical plans
+			repository.plans = this.plans;
+		}
 
-		// performance optimization: since the same database is used, we can
-		// assume identical schemas
-		repository.schemas = this.schemas;
+		if (caching == this.caching) {
+			// transactions span both repositories
+			repository.transactions = this.transactions;
+		}
 
 		return repository;
 	}
@@ -165,7 +212,10 @@ public class Repository {
 
 	public void close() {
 		if (database != null) {
+			caching.invalidate(this, Propoid.class);
 			schemas.clear();
+			statements.clear();
+			plans.clear();
 
 			locator.close();
 			database = null;
@@ -179,6 +229,23 @@ public class Repository {
 		return database;
 	}
 
+	/**
+	 * Get the cache of compiled statements.
+	 */
+	public Statements getStatements() {
+		if (database == null) {
+			throw new RepositoryException("closed");
+		}
+		return statements;
+	}
+
+	/**
+	 * Get the cache of plans to retrieve propoids.
+	 */
+	public Plans getPlans() {
+		return plans;
+	}
+
 	/**
 	 * Index {@link Propoid}s.
 	 */
@@ -188,12 +255,26 @@ public class Repository {
 		new Index(this).now(propoid, unique, order);
 	}
 
+	/**
+	 * Index a {@link String} property for full-text search.
+	 * 
+	 * @param property
+	 *            property of a prototype
+	 * @see Where#matches(Property, String)
+	 */
+	public void indexFullText(Property<String> property) {
+		schema(property.propoid);
+
+		new FullText(this).now(property);
+	}
+
 	/**
 	 * Delete the given {@link Propoid}.
 	 */
 	public void delete(Propoid propoid) {
 		schema(propoid);
 
+		written(propoid);
 		new Delete(this).now(propoid);
 
 		observer.onDelete(propoid);
@@ -223,13 +304,16 @@ public class Repository {
 	public void insert(Propoid propoid) {
 		schema(propoid);
 
-		database.beginTransaction();
+		boolean successful = false;
+		begin();
 		try {
+			written(propoid);
 			new Insert(this).now(propoid);
 
 			database.setTransactionSuccessful();
+			successful = true;
 		} finally {
-			database.endTransaction();
+			end(successful);
 		}
 
 		observer.onInsert(propoid);
@@ -237,22 +321,149 @@ public class Repository {
 
 	/**
 	 * Update the given {@link Propoid}.
+	 * <p>
+	 * Only changed properties are written, observers are not notified if
+	 * nothing was changed.
 	 * 
 	 * @param propoid
 	 */
 	public void update(Propoid propoid) {
 		schema(propoid);
 
-		database.beginTransaction();
+		boolean updated;
+		boolean successful = false;
+		begin();
 		try {
-			new Update(this).now(propoid);
+			written(propoid);
+			updated = new Update(this).now(propoid);
 
 			database.setTransactionSuccessful();
+			successful = true;
 		} finally {
-			database.endTransaction();
+			end(successful);
 		}
 
-		observer.onUpdate(propoid);
+		if (updated) {
+			observer.onUpdate(propoid);
+		}
+	}
+
+	/**
+	 * Merge the given {@link Propoid}s in a single transaction.
+	 * <p>
+	 * Observers are notified once after the transaction was committed.
+	 * 
+	 * @param propoids
+	 * @see #merge(Propoid)
+	 */
+	public void mergeAll(Iterable<? extends Propoid> propoids) {
+		List<Propoid> inserted = new ArrayList<Propoid>();
+		List<Propoid> updated = new ArrayList<Propoid>();
+
+		boolean successful = false;
+		begin();
+		try {
+			Insert insert = new Insert(this);
+			Update update = new Update(this);
+
+			for (Propoid propoid : propoids) {
+				schema(propoid);
+
+				written(propoid);
+
+				if (Row.getID(propoid) == Row.TRANSIENT) {
+					insert.now(propoid);
+
+					inserted.add(propoid);
+				} else if (update.now(propoid)) {
+					updated.add(propoid);
+				}
+			}
+
+			database.setTransactionSuccessful();
+			successful = true;
+		} finally {
+			end(successful);
+		}
+
+		if (!inserted.isEmpty()) {
+			onInsertAll(inserted);
+		}
+		if (!updated.isEmpty()) {
+			onUpdateAll(updated);
+		}
+	}
+
+	/**
+	 * Insert the given {@link Propoid}s in a single transaction.
+	 * <p>
+	 * Observers are notified once after the transaction was committed.
+	 * 
+	 * @param propoids
+	 * @see #insert(Propoid)
+	 */
+	public void insertAll(Iterable<? extends Propoid> propoids) {
+		List<Propoid> inserted = new ArrayList<Propoid>();
+
+		boolean successful = false;
+		begin();
+		try {
+			Insert insert = new Insert(this);
+
+			for (Propoid propoid : propoids) {
+				schema(propoid);
+
+				written(propoid);
+				insert.now(propoid);
+
+				inserted.add(propoid);
+			}
+
+			database.setTransactionSuccessful();
+			successful = true;
+		} finally {
+			end(successful);
+		}
+
+		if (!inserted.isEmpty()) {
+			onInsertAll(inserted);
+		}
+	}
+
+	/**
+	 * Update the given {@link Propoid}s in a single transaction.
+	 * <p>
+	 * Observers are notified once after the transaction was committed.
+	 * 
+	 * @param propoids
+	 * @see #update(Propoid)
+	 */
+	public void updateAll(Iterable<? extends Propoid> propoids) {
+		List<Propoid> updated = new ArrayList<Propoid>();
+
+		boolean successful = false;
+		begin();
+		try {
+			Update update = new Update(this);
+
+			for (Propoid propoid : propoids) {
+				schema(propoid);
+
+				written(propoid);
+				if (update.now(propoid)) {
+					updated.add(propoid);
+				}
+			}
+
+			database.setTransactionSuccessful();
+			successful = true;
+		} finally {
+			end(successful);
+		}
+
+		if (!updated.isEmpty()) {
+			onUpdateAll(updated);
+		}
 	}
 
 	/**
@@ -340,19 +551,219 @@ public class Repository {
 
 	/**
 	 * Perform transactional operations.
+	 * <p>
+	 * Observers are notified of all changes once after the transaction was
+	 * committed. If the transaction is rolled back, the rows and changes of
+	 * all propoids written in it are restored, so they can be written again.
 	 * 
 	 * @param transactional
 	 */
 	public void transactional(Transaction transactional) {
-		database.beginTransaction();
+		boolean successful = false;
+		begin();
 
 		try {
 			transactional.doTransactional();
 
 			database.setTransactionSuccessful();
+			successful = true;
 		} finally {
+			end(successful);
+		}
+	}
+
+	/**
+	 * Begin a transaction - non exclusive, so with write-ahead logging other
+	 * threads can still read from the database.
+	 * 
+	 * @see FileLocator#setWriteAheadLogging(boolean)
+	 */
+	private void begin() {
+		database.beginTransactionNonExclusive();
+
+		transactions.get().depth++;
+
+		if (observer instanceof TransactionObserver) {
+			((TransactionObserver) observer).onBegin();
+		}
+	}
+
+	/**
+	 * End a transaction.
+	 * 
+	 * @param successful
+	 *            whether the transaction was marked as successful
+	 */
+	private void end(boolean successful) {
+		try {
 			database.endTransaction();
+		} catch (RuntimeException ex) {
+			ended(transactions.get(), false);
+			onEnd(false);
+			throw ex;
+		}
+
+		ended(transactions.get(), successful);
+
+		onEnd(successful);
+	}
+
+	private void onEnd(boolean successful) {
+		if (observer instanceof TransactionObserver) {
+			if (successful) {
+				((TransactionObserver) observer).onCommit();
+			} else {
+				((TransactionObserver) observer).onRollback();
+			}
+		}
+	}
+
+	/**
+	 * Notify the {@link Observer} of inserted propoids, separately if it is
+	 * not a {@link TransactionObserver}.
+	 */
+	private void onInsertAll(List<Propoid> inserted) {
+		if (observer instanceof TransactionObserver) {
+			((TransactionObserver) observer).onInsertAll(inserted);
+		} else {
+			for (Propoid propoid : inserted) {
+				observer.onInsert(propoid);
+			}
+		}
+	}
+
+	/**
+	 * Notify the {@link Observer} of updated propoids, separately if it is
+	 * not a {@link TransactionObserver}.
+	 */
+	private void onUpdateAll(List<Propoid> updated) {
+		if (observer instanceof TransactionObserver) {
+			((TransactionObserver) observer).onUpdateAll(updated);
+		} else {
+			for (Propoid propoid : updated) {
+				observer.onUpdate(propoid);
+			}
+		}
+	}
+
+	/**
+	 * Invalidate a propoid in the {@link Caching}. Inside a transaction the
+	 * invalidation is deferred until the transaction has ended, so no other
+	 * thread can cache the propoid in the meantime.
+	 * 
+	 * @param propoid
+	 *            changed or deleted propoid
+	 */
+	public void invalidate(Propoid propoid) {
+		Pending pending = transactions.get();
+		if (pending.depth == 0) {
+			caching.invalidate(this, propoid);
+		} else {
+			pending.invalidated.add(propoid);
+		}
+	}
+
+	/**
+	 * Invalidate all propoids of a class in the {@link Caching}, deferred
+	 * until the end of the current transaction.
+	 * 
+	 * @param clazz
+	 *            class of changed or deleted propoids
+	 * @see #invalidate(Propoid)
+	 */
+	public void invalidate(Class<? extends Propoid> clazz) {
+		Pending pending = transactions.get();
+		if (pending.depth == 0) {
+			caching.invalidate(this, clazz);
+		} else {
+			pending.invalidated.add(clazz);
+		}
+	}
+
+	/**
+	 * Remember the row and changes of a propoid before it is written in a
+	 * transaction, to be restored if the transaction is rolled back.
+	 * 
+	 * @see #ended(Pending, boolean)
+	 */
+	private void written(Propoid propoid) {
+		Pending pending = transactions.get();
+		if (pending.depth > 0 && !pending.written.containsKey(propoid)) {
+			pending.written.put(propoid, new long[] { Row.getID(propoid),
+					Dirty.getProperties(propoid) });
+		}
+	}
+
+	/**
+	 * A transaction ended - when the outermost transaction ends, written
+	 * propoids are restored if any transaction was rolled back, and pending
+	 * invalidations are applied.
+	 */
+	@SuppressWarnings("unchecked")
+	private void ended(Pending pending, boolean successful) {
+		if (!successful) {
+			// a nested rollback rolls back the outermost transaction too
+			pending.rolledBack = true;
 		}
+
+		pending.depth--;
+		if (pending.depth > 0) {
+			return;
+		}
+
+		if (pending.rolledBack) {
+			for (Map.Entry<Propoid, long[]> entry : pending.written.entrySet()) {
+				Propoid propoid = entry.getKey();
+				long[] state = entry.getValue();
+
+				if (state[0] == Row.TRANSIENT) {
+					Row.reset(propoid);
+				} else {
+					Row.reuse(propoid, state[0]);
+				}
+				Dirty.restore(propoid, state[1]);
+			}
+		}
+		pending.written.clear();
+		pending.rolledBack = false;
+
+		// cached propoids might hold rolled back changes too
+		for (Object invalidated : pending.invalidated) {
+			if (invalidated instanceof Propoid) {
+				caching.invalidate(this, (Propoid) invalidated);
+			} else {
+				caching.invalidate(this,
+						(Class<? extends Propoid>) invalidated);
+			}
+		}
+		pending.invalidated.clear();
+	}
+
+	/**
+	 * State of the transaction of the current thread.
+	 */
+	private static class Transactions extends ThreadLocal<Pending> {
+		@Override
+		protected Pending initialValue() {
+			return new Pending();
+		}
+	}
+
+	private static class Pending {
+
+		int depth;
+
+		boolean rolledBack;
+
+		/**
+		 * Rows and changes of written propoids.
+		 */
+		final Map<Propoid, long[]> written = new IdentityHashMap<Propoid, long[]>();
+
+		/**
+		 * Propoids or classes of propoids.
+		 */
+		final List<Object> invalidated = new ArrayList<Object>();
 	}
 
 	/**
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db;
+
+import propoid.core.Propoid;
+
+/**
+ * Optional extension of an {@link Observer}, that is notified of multiple
+ * changes at once and of transactions.
+ * <p>
+ * A plain {@link Observer} is notified of each change separately instead.
+ */
+public interface TransactionObserver extends Observer {
+
+	/**
+	 * Notification of multiple {@link Propoid}s inserted at once.
+	 *
+	 * @see Repository#insertAll(Iterable)
+	 */
+	public void onInsertAll(Iterable<? extends Propoid> propoids);
+
+	/**
+	 * Notification of multiple {@link Propoid}s updated at once.
+	 *
+	 * @see Repository#updateAll(Iterable)
+	 */
+	public void onUpdateAll(Iterable<? extends Propoid> propoids);
+
+	/**
+	 * Notification of a transaction begun on the current thread, transactions
+	 * might be nested.
+	 * <p>
+	 * All notifications on the current thread until the outermost transaction
+	 * ends are part of it.
+	 * 
+	 * @see #onCommit()
+	 * @see #onRollback()
+	 */
+	public void onBegin();
+
+	/**
+	 * Notification of a transaction committed on the current thread.
+	 * <p>
+	 * Note that a nested transaction is committed only with its outermost
+	 * transaction.
+	 */
+	public void onCommit();
+
+	/**
+	 * Notification of a transaction rolled back on the current thread.
+	 * <p>
+	 * Note that a nested transaction rolls back its outermost transaction too.
+	 */
+	public void onRollback();
+}
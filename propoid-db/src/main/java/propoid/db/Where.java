@@ -19,6 +19,9 @@ import java.util.Collection;
 
 import propoid.core.Property;
 import propoid.core.Propoid;
+import propoid.db.mapping.BinaryPropoidsMapper;
+import propoid.db.mapping.JoinedPropoidsMapper;
+import propoid.db.operation.FullText;
 import propoid.db.operation.Operation;
 import propoid.db.operation.Operation.Aliaser;
 import propoid.db.operation.Operation.Arguments;
@@ -139,6 +142,53 @@ public class Where {
 				value);
 	}
 
+	/**
+	 * ... property matches a full-text query, see SQLite's FTS for the syntax
+	 * of queries.
+	 * 
+	 * @param property
+	 *            property indexed for full-text search
+	 * @param query
+	 *            full-text query
+	 * @return where expression
+	 * @see Repository#indexFullText(Property)
+	 */
+	public static Where matches(Property<String> property, String query) {
+		return new Matches(property, query);
+	}
+
+	/**
+	 * ... property matches all words of a text as prefixes, e.g. for
+	 * type-ahead suggestions.
+	 * 
+	 * @param property
+	 *            property indexed for full-text search
+	 * @param text
+	 *            text to match
+	 * @return where expression
+	 * @see Repository#indexFullText(Property)
+	 */
+	public static Where matchesPrefix(Property<String> property, String text) {
+		return new Matches(property, prefix(text));
+	}
+
+	/**
+	 * Get a full-text query matching all words of the given text as prefixes.
+	 */
+	public static String prefix(String text) {
+		StringBuilder query = new StringBuilder();
+		for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+			if (word.length() > 0) {
+				if (query.length() > 0) {
+					query.append(' ');
+				}
+				query.append(word);
+				query.append('*');
+			}
+		}
+		return query.toString();
+	}
+
 	/**
 	 * ... condition is not met.
 	 * 
@@ -394,6 +444,36 @@ public class Where {
 						   Aliaser aliaser) {
 			SQL sql = new SQL();
 
+			if (repository.mapping.getMapper(repository, property) instanceof BinaryPropoidsMapper) {
+				throw new RepositoryException("cannot query binary ids of " + property);
+			}
+
+			if (joined(repository)) {
+				String join = aliaser.alias(value) + "j";
+
+				sql.raw("exists (select null from ");
+				sql.escaped(JoinedPropoidsMapper.table(repository, property));
+				sql.raw(" ");
+				sql.raw(join);
+				sql.raw(", ");
+				sql.escaped(repository.naming.table(repository, value.getClass()));
+				sql.raw(" ");
+				sql.raw(aliaser.alias(value));
+				sql.raw(" where ");
+				sql.raw(join);
+				sql.raw(".owner = ");
+				sql.raw(aliaser.alias(property.propoid));
+				sql.raw("._id and ");
+				sql.raw(join);
+				sql.raw(".item = ");
+				sql.raw(aliaser.alias(value));
+				sql.raw("._id and ");
+				sql.append(where.toWhere(repository, value, arguments, aliaser));
+				sql.raw(")");
+
+				return sql;
+			}
+
 			sql.raw("exists (select null from ");
 			sql.escaped(repository.naming.table(repository, value.getClass()));
 			sql.raw(" ");
@@ -412,6 +492,40 @@ public class Where {
 
 			return sql;
 		}
+
+		private boolean joined(Repository repository) {
+			return repository.mapping.getMapper(repository,
+					property) instanceof JoinedPropoidsMapper;
+		}
+	}
+
+	private static class Matches extends Where {
+
+		private final Property<String> property;
+
+		private final String query;
+
+		Matches(Property<String> property, String query) {
+			this.property = property;
+			this.query = query;
+		}
+
+		@Override
+		public SQL toWhere(Repository repository, Propoid propoid, Arguments arguments,
+						   Aliaser aliaser) {
+			SQL sql = new SQL();
+
+			sql.raw(aliaser.alias(property.propoid));
+			sql.raw("._id in (select docid from ");
+			sql.escaped(FullText.table(repository, property));
+			sql.raw(" where ");
+			sql.escaped(property.meta().name);
+			sql.raw(" match ?)");
+
+			arguments.add(query);
+
+			return sql;
+		}
 	}
 
 	private static class Comparison extends Where {
@@ -441,7 +555,7 @@ public class Where {
 			sql.raw(comparator);
 
 			if (comparand != null) {
-				String constrain = repository.mapping.getMapper(repository,
+				Object constrain = repository.mapping.getMapper(repository,
 						property).argument(property, repository, comparand);
 				arguments.add(constrain);
 			}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.aspect;
+
+import java.util.Collection;
+
+import propoid.core.Property;
+import propoid.core.Propoid;
+import propoid.db.Repository;
+import propoid.db.mapping.JoinedPropoidsMapper;
+
+/**
+ * Aspect representing the relation to other {@link Propoid}s stored in a join
+ * table, the ids are selected lazily.
+ * 
+ * @see JoinedPropoidsMapper
+ */
+public class JoinedToManyRelation extends ToManyRelation {
+
+	/**
+	 * Is the collection present, i.e. not {@code null}.
+	 */
+	public boolean present;
+
+	public JoinedToManyRelation(Property<Collection<Propoid>> property,
+			Repository repository, boolean present, long[] ids) {
+		super(property, repository, ids);
+
+		this.present = present;
+	}
+
+	@Override
+	protected Collection<Propoid> load() {
+		if (present && ids == null && repository != null) {
+			ids = JoinedPropoidsMapper.select(repository, property);
+		}
+
+		return super.load();
+	}
+}
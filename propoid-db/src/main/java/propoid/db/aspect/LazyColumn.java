@@ -0,0 +1,88 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.aspect;
+
+import propoid.core.Aspect;
+import propoid.core.Property;
+import propoid.core.PropertyAspect;
+import propoid.db.Repository;
+import propoid.db.RepositoryException;
+import propoid.db.operation.Refresh;
+
+/**
+ * Aspect representing a property whose column was not selected.
+ * 
+ * @see propoid.db.Match#select(Property...)
+ */
+public class LazyColumn<T> extends LazyLoad<T> {
+
+	public transient Repository repository;
+
+	public LazyColumn(Property<T> property, Repository repository) {
+		super(property);
+
+		this.repository = repository;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	protected T load() {
+		if (repository == null) {
+			throw new RepositoryException("cannot get detached column");
+		}
+
+		new Refresh(repository).now(property.propoid, property);
+
+		T value = property.getInternal();
+
+		// retrieval might have installed another lazy load, e.g. a relation
+		for (Aspect aspect : property.propoid.aspects()) {
+			if (aspect != this && aspect instanceof LazyLoad
+					&& ((LazyLoad) aspect).property == property
+					&& ((LazyLoad) aspect).loaded == false) {
+				value = ((LazyLoad<T>) aspect).load();
+
+				((LazyLoad) aspect).loaded = true;
+			}
+		}
+
+		return value;
+	}
+
+	/**
+	 * Mark the given property as not loaded.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static void unload(Property<?> property, Repository repository) {
+		LazyColumn column = PropertyAspect.find(property, LazyColumn.class);
+		if (column == null) {
+			new LazyColumn(property, repository);
+		} else {
+			column.loaded = false;
+			column.repository = repository;
+		}
+	}
+
+	/**
+	 * Mark the given property as loaded.
+	 */
+	public static void load(Property<?> property) {
+		LazyColumn<?> column = PropertyAspect.find(property, LazyColumn.class);
+		if (column != null) {
+			column.loaded = true;
+		}
+	}
+}
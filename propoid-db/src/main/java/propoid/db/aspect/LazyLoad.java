@@ -45,6 +45,6 @@ public abstract class LazyLoad<T> extends PropertyAspect<T> {
 	public T onSet(T value) {
 		loaded = true;
 
-		return value;
+		return super.onSet(value);
 	}
 }
\ No newline at end of file
@@ -32,7 +32,10 @@ public class Row extends AbstractAspect {
 	 */
 	public static final long TRANSIENT = -1;
 
-	public final long id;
+	/**
+	 * The row id, changed via {@link #reuse(Propoid, long)} only.
+	 */
+	private long id;
 
 	public Row(Propoid propoid, long id) {
 		super(propoid);
@@ -62,6 +65,24 @@ public class Row extends AbstractAspect {
 		}
 	}
 
+	/**
+	 * Reuse a propoid for another row, setting its id in place.
+	 * 
+	 * @param propoid
+	 *            propoid
+	 * @param id
+	 *            id of row
+	 */
+	public static void reuse(Propoid propoid, long id) {
+		Row row = get(propoid);
+
+		if (row == null) {
+			new Row(propoid, id);
+		} else {
+			row.id = id;
+		}
+	}
+
 	public static void reset(Propoid propoid) {
 		Iterator<Aspect> aspects = propoid.aspects().iterator();
 		while (aspects.hasNext()) {
@@ -18,13 +18,17 @@ package propoid.db.aspect;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import propoid.core.Property;
 import propoid.core.Propoid;
+import propoid.db.LookupException;
 import propoid.db.Reference;
+import propoid.db.References;
 import propoid.db.Repository;
 import propoid.db.RepositoryException;
 import propoid.db.mapping.PropoidsMapper;
@@ -63,16 +67,30 @@ public class ToManyRelation extends LazyLoad<Collection<Propoid>> {
 			}
 
 			Class itemType = PropoidsMapper.itemType(property);
-			for (int i = 0; i < ids.length; i++) {
-				long id = ids[i];
 
+			int count = 0;
+			long[] persistent = new long[ids.length];
+			for (long id : ids) {
+				if (id != Row.TRANSIENT) {
+					persistent[count++] = id;
+				}
+			}
+
+			// lookup all at once, in order of ids
+			List<Propoid> propoids = new Lookup(repository).now(new References<Propoid>(itemType,
+					Arrays.copyOf(persistent, count)));
+
+			int p = 0;
+			for (long id : ids) {
 				Propoid propoid;
 				if (id == Row.TRANSIENT) {
 					propoid = null;
 				} else {
-					Reference reference = new Reference(itemType, id);
-
-					propoid = new Lookup(repository).now(reference);
+					if (p < propoids.size() && Row.getID(propoids.get(p)) == id) {
+						propoid = propoids.get(p++);
+					} else {
+						throw new LookupException(new Reference(itemType, id));
+					}
 				}
 
 				collection.add(propoid);
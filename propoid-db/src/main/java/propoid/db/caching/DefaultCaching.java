@@ -0,0 +1,46 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.caching;
+
+import propoid.core.Propoid;
+import propoid.db.Caching;
+import propoid.db.Reference;
+import propoid.db.Repository;
+
+/**
+ * Default caching - nothing is cached.
+ */
+public class DefaultCaching implements Caching {
+
+	@Override
+	public Propoid get(Repository repository, Reference<?> reference) {
+		return null;
+	}
+
+	@Override
+	public void put(Repository repository, Reference<?> reference,
+			Propoid propoid) {
+	}
+
+	@Override
+	public void invalidate(Repository repository, Propoid propoid) {
+	}
+
+	@Override
+	public void invalidate(Repository repository,
+			Class<? extends Propoid> clazz) {
+	}
+}
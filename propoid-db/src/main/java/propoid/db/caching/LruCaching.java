@@ -0,0 +1,152 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.caching;
+
+import java.util.Map;
+
+import propoid.core.Propoid;
+import propoid.db.Caching;
+import propoid.db.Reference;
+import propoid.db.Repository;
+import propoid.db.aspect.Row;
+import android.util.LruCache;
+
+/**
+ * Caching of a limited count of propoids, evicting the least recently used.
+ * <p>
+ * Note that a cached propoid is shared by all lookups until it is changed or
+ * deleted through the {@link Repository}. Propoids looked up inside of a
+ * transaction are not cached, since the transaction might be rolled back.
+ * <p>
+ * A propoid is only cached if no invalidation happened since its lookup missed
+ * the cache, since it might have been read before a concurrent change.
+ */
+public class LruCaching implements Caching {
+
+	private final LruCache<Reference<?>, Propoid> cache;
+
+	/**
+	 * Incremented on each invalidation, guarded by {@code this}.
+	 */
+	private long generation;
+
+	/**
+	 * Generation at the last miss of the current thread.
+	 */
+	private final ThreadLocal<Long> missed = new ThreadLocal<Long>();
+
+	/**
+	 * Cache up to the given count of propoids.
+	 * 
+	 * @param maxSize
+	 *            maximum count of propoids
+	 */
+	public LruCaching(int maxSize) {
+		cache = new LruCache<Reference<?>, Propoid>(maxSize);
+	}
+
+	@Override
+	public Propoid get(Repository repository, Reference<?> reference) {
+		Propoid propoid = cache.get(reference);
+		if (propoid == null) {
+			synchronized (this) {
+				missed.set(generation);
+			}
+		}
+		return propoid;
+	}
+
+	@Override
+	public void put(Repository repository, Reference<?> reference,
+			Propoid propoid) {
+		if (repository.getDatabase().inTransaction()) {
+			return;
+		}
+
+		synchronized (this) {
+			Long generation = missed.get();
+			if (generation == null || generation != this.generation) {
+				// invalidated since the miss, propoid might be stale
+				return;
+			}
+
+			cache.put(reference, propoid);
+		}
+	}
+
+	/**
+	 * Removes the propoid for all references to its class and superclasses.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public void invalidate(Repository repository, Propoid propoid) {
+		long id = Row.getID(propoid);
+		if (id == Row.TRANSIENT) {
+			return;
+		}
+
+		synchronized (this) {
+			generation++;
+
+			Class<?> clazz = propoid.getClass();
+			while (clazz != Propoid.class) {
+				cache.remove(new Reference<Propoid>(
+						(Class<? extends Propoid>) clazz, id));
+
+				clazz = clazz.getSuperclass();
+			}
+		}
+	}
+
+	/**
+	 * Removes all propoids of the given class.
+	 */
+	@Override
+	public void invalidate(Repository repository,
+			Class<? extends Propoid> clazz) {
+		synchronized (this) {
+			generation++;
+
+			for (Map.Entry<Reference<?>, Propoid> entry : cache.snapshot()
+					.entrySet()) {
+				if (clazz.isInstance(entry.getValue())) {
+					cache.remove(entry.getKey());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Count of lookups that were served from this cache.
+	 */
+	public int getHits() {
+		return cache.hitCount();
+	}
+
+	/**
+	 * Count of lookups that were not served from this cache.
+	 */
+	public int getMisses() {
+		return cache.missCount();
+	}
+
+	/**
+	 * Count of propoids evicted to keep the maximum size.
+	 */
+	public int getEvictions() {
+		return cache.evictionCount();
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.instrumentation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import propoid.db.Instrumentation;
+import propoid.db.Repository;
+
+/**
+ * Instrumentation collecting a histogram of execution times for each
+ * operation.
+ * <p>
+ * Times are counted in buckets of powers of two microseconds, thus
+ * percentiles are accurate up to a factor of two.
+ */
+public class Histogram implements Instrumentation {
+
+	private static final int BUCKETS = 32;
+
+	private final Instrumentation next;
+
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+
+	public Histogram() {
+		this(new DefaultInstrumentation());
+	}
+
+	/**
+	 * Collect a histogram, passing on all executions.
+	 * 
+	 * @param next
+	 *            instrumentation to pass executions to
+	 */
+	public Histogram(Instrumentation next) {
+		this.next = next;
+	}
+
+	@Override
+	public void onQuery(Repository repository, String operation, String sql) {
+		next.onQuery(repository, operation, sql);
+	}
+
+	@Override
+	public void onExecuted(Repository repository, String operation,
+			String sql, int arguments, int rows, long sqlTime,
+			long hydrationTime) {
+		synchronized (this) {
+			Entry entry = entries.get(operation);
+			if (entry == null) {
+				entry = new Entry(operation);
+				entries.put(operation, entry);
+			}
+			entry.add(rows, sqlTime, hydrationTime);
+		}
+
+		next.onExecuted(repository, operation, sql, arguments, rows, sqlTime,
+				hydrationTime);
+	}
+
+	/**
+	 * Get a snapshot of all entries in order of first execution.
+	 */
+	public synchronized Entry[] getEntries() {
+		Entry[] snapshot = new Entry[entries.size()];
+		int e = 0;
+		for (Entry entry : entries.values()) {
+			snapshot[e++] = new Entry(entry);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Get a snapshot of the entry for an operation.
+	 * 
+	 * @param operation
+	 *            name of operation
+	 * @return entry or {@code null} if not executed
+	 */
+	public synchronized Entry getEntry(String operation) {
+		Entry entry = entries.get(operation);
+		if (entry == null) {
+			return null;
+		}
+		return new Entry(entry);
+	}
+
+	/**
+	 * Forget all executions.
+	 */
+	public synchronized void reset() {
+		entries.clear();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (Entry entry : getEntries()) {
+			builder.append(entry);
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Executions of a single operation.
+	 */
+	public static final class Entry {
+
+		public final String operation;
+
+		private long count;
+
+		private long rows;
+
+		private long sqlTime;
+
+		private long hydrationTime;
+
+		private long maxTime;
+
+		private final long[] buckets;
+
+		Entry(String operation) {
+			this.operation = operation;
+			this.buckets = new long[BUCKETS];
+		}
+
+		Entry(Entry other) {
+			this.operation = other.operation;
+			this.count = other.count;
+			this.rows = other.rows;
+			this.sqlTime = other.sqlTime;
+			this.hydrationTime = other.hydrationTime;
+			this.maxTime = other.maxTime;
+			this.buckets = other.buckets.clone();
+		}
+
+		void add(int rows, long sqlTime, long hydrationTime) {
+			long time = sqlTime + hydrationTime;
+
+			this.count++;
+			if (rows > 0) {
+				this.rows += rows;
+			}
+			this.sqlTime += sqlTime;
+			this.hydrationTime += hydrationTime;
+			this.maxTime = Math.max(this.maxTime, time);
+
+			long micros = time / 1000;
+			int bucket = 64 - Long.numberOfLeadingZeros(micros);
+			buckets[Math.min(bucket, BUCKETS - 1)]++;
+		}
+
+		/**
+		 * Count of executions.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Total count of retrieved rows.
+		 */
+		public long getRows() {
+			return rows;
+		}
+
+		/**
+		 * Total nanoseconds spent executing SQL.
+		 */
+		public long getSqlTime() {
+			return sqlTime;
+		}
+
+		/**
+		 * Total nanoseconds spent hydrating propoids.
+		 */
+		public long getHydrationTime() {
+			return hydrationTime;
+		}
+
+		/**
+		 * Maximum nanoseconds of a single execution.
+		 */
+		public long getMaxTime() {
+			return maxTime;
+		}
+
+		/**
+		 * Get the upper bound of a percentile of execution times.
+		 * 
+		 * @param percentile
+		 *            percentile between {@code 0} and {@code 1}
+		 * @return nanoseconds
+		 */
+		public long getPercentile(double percentile) {
+			long rank = (long) Math.ceil(count * percentile);
+
+			long seen = 0;
+			for (int b = 0; b < BUCKETS; b++) {
+				seen += buckets[b];
+				if (seen >= rank && seen > 0) {
+					return Math.min(maxTime, (1l << b) * 1000);
+				}
+			}
+			return maxTime;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(
+					"%s: count %d, rows %d, sql %dms, hydration %dms, p50 %dus, p95 %dus, max %dus",
+					operation, count, rows, sqlTime / 1000000,
+					hydrationTime / 1000000, getPercentile(0.5) / 1000,
+					getPercentile(0.95) / 1000, maxTime / 1000);
+		}
+	}
+}
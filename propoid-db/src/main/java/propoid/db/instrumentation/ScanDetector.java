@@ -0,0 +1,176 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.instrumentation;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import propoid.db.Instrumentation;
+import propoid.db.QueryPlan;
+import propoid.db.QueryPlan.Step;
+import propoid.db.Repository;
+import propoid.db.RepositoryException;
+import propoid.db.SQL;
+import propoid.db.schema.Column;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+/**
+ * Instrumentation detecting queries scanning whole tables, for debugging only.
+ * <p>
+ * Each distinct SQL is explained once before its first execution. A full scan
+ * of a table with more rows than a threshold is logged, or optionally causes
+ * a {@link RepositoryException} instead of executing the query.
+ * 
+ * @see QueryPlan#getFullScans()
+ */
+public class ScanDetector implements Instrumentation {
+
+	private static final String TAG = "propoid";
+
+	private final Instrumentation next;
+
+	private final Set<String> explained = Collections
+			.synchronizedSet(new HashSet<String>());
+
+	private volatile long threshold;
+
+	private volatile boolean throwing;
+
+	/**
+	 * Detect full scans of tables with more rows than the given threshold.
+	 * 
+	 * @param threshold
+	 *            count of rows
+	 */
+	public ScanDetector(long threshold) {
+		this(threshold, new DefaultInstrumentation());
+	}
+
+	/**
+	 * Detect full scans of tables with more rows than the given threshold,
+	 * passing on all executions.
+	 * 
+	 * @param threshold
+	 *            count of rows
+	 * @param next
+	 *            instrumentation to pass executions to
+	 */
+	public ScanDetector(long threshold, Instrumentation next) {
+		this.threshold = threshold;
+		this.next = next;
+	}
+
+	/**
+	 * Set the count of rows a scanned table may hold without being detected.
+	 */
+	public void setThreshold(long threshold) {
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Should a detected scan cause an exception instead of being logged.
+	 * 
+	 * @param throwing
+	 *            {@code true} to throw
+	 */
+	public void setThrowing(boolean throwing) {
+		this.throwing = throwing;
+	}
+
+	@Override
+	public void onQuery(Repository repository, String operation, String sql) {
+		next.onQuery(repository, operation, sql);
+
+		if (explained.contains(sql)) {
+			return;
+		}
+
+		detect(repository, sql);
+
+		// detect again if thrown
+		explained.add(sql);
+	}
+
+	@Override
+	public void onExecuted(Repository repository, String operation,
+			String sql, int arguments, int rows, long sqlTime,
+			long hydrationTime) {
+		next.onExecuted(repository, operation, sql, arguments, rows, sqlTime,
+				hydrationTime);
+	}
+
+	private void detect(Repository repository, String sql) {
+		SQLiteDatabase database = repository.getDatabase();
+
+		QueryPlan plan;
+		Cursor cursor = database.rawQuery("EXPLAIN QUERY PLAN " + sql, null);
+		try {
+			plan = new QueryPlan(sql, cursor);
+		} finally {
+			cursor.close();
+		}
+
+		for (Step step : plan.getFullScans()) {
+			String table = step.getTable();
+			if (table == null || !Column.exists(table, database)) {
+				continue;
+			}
+
+			long count = estimate(database, table);
+			if (count > threshold) {
+				String message = String.format(
+						"full scan of %s with about %d rows: %s", table, count,
+						plan);
+				if (throwing) {
+					throw new RepositoryException(message);
+				}
+				log(message);
+			}
+		}
+	}
+
+	/**
+	 * Estimate the count of rows by the maximum rowid - in contrast to
+	 * {@code COUNT(*)} this does not scan the table.
+	 */
+	private long estimate(SQLiteDatabase database, String table) {
+		SQL sql = new SQL();
+		sql.raw("SELECT max(rowid) FROM ");
+		sql.escaped(table);
+
+		Cursor cursor = database.rawQuery(sql.toString(), null);
+		try {
+			cursor.moveToFirst();
+
+			return cursor.getLong(0);
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Log a detected scan.
+	 * 
+	 * @param message
+	 *            message describing the scan
+	 */
+	protected void log(String message) {
+		Log.w(TAG, message);
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.instrumentation;
+
+import propoid.db.Instrumentation;
+import propoid.db.Repository;
+import android.util.Log;
+
+/**
+ * Instrumentation logging all executions slower than a threshold.
+ */
+public class SlowQueryLog implements Instrumentation {
+
+	private static final String TAG = "propoid";
+
+	private final Instrumentation next;
+
+	private volatile long threshold;
+
+	/**
+	 * Log executions slower than the given threshold.
+	 * 
+	 * @param threshold
+	 *            threshold in milliseconds
+	 */
+	public SlowQueryLog(long threshold) {
+		this(threshold, new DefaultInstrumentation());
+	}
+
+	/**
+	 * Log executions slower than the given threshold, passing on all
+	 * executions.
+	 * 
+	 * @param threshold
+	 *            threshold in milliseconds
+	 * @param next
+	 *            instrumentation to pass executions to
+	 */
+	public SlowQueryLog(long threshold, Instrumentation next) {
+		this.next = next;
+
+		setThreshold(threshold);
+	}
+
+	/**
+	 * Set the threshold for executions to be logged.
+	 * 
+	 * @param threshold
+	 *            threshold in milliseconds
+	 */
+	public void setThreshold(long threshold) {
+		this.threshold = threshold * 1000000;
+	}
+
+	@Override
+	public void onQuery(Repository repository, String operation, String sql) {
+		next.onQuery(repository, operation, sql);
+	}
+
+	@Override
+	public void onExecuted(Repository repository, String operation,
+			String sql, int arguments, int rows, long sqlTime,
+			long hydrationTime) {
+		if (sqlTime + hydrationTime >= threshold) {
+			log(String.format(
+					"slow %s: %dms sql, %dms hydration, %d rows, %d arguments: %s",
+					operation, sqlTime / 1000000, hydrationTime / 1000000,
+					rows, arguments, sql));
+		}
+
+		next.onExecuted(repository, operation, sql, arguments, rows, sqlTime,
+				hydrationTime);
+	}
+
+	/**
+	 * Log a slow execution.
+	 * 
+	 * @param message
+	 *            message describing the execution
+	 */
+	protected void log(String message) {
+		Log.w(TAG, message);
+	}
+}
@@ -31,6 +31,8 @@ public class FileLocator implements Locator {
 	private File file;
 	private SQLiteDatabase database;
 
+	private boolean writeAheadLogging;
+
 	/**
 	 * Locate the database from the given file.
 	 */
@@ -50,6 +52,18 @@ public class FileLocator implements Locator {
 		this.file = context.getDatabasePath(name);
 	}
 
+	/**
+	 * Enable write-ahead logging, default is {@code false}.
+	 * <p>
+	 * With write-ahead logging reads on different threads run concurrently on
+	 * a pool of connections, while writes go to a single connection.
+	 * 
+	 * @see SQLiteDatabase#enableWriteAheadLogging()
+	 */
+	public void setWriteAheadLogging(boolean writeAheadLogging) {
+		this.writeAheadLogging = writeAheadLogging;
+	}
+
 	public SQLiteDatabase open() {
 		if (database != null) {
 			throw new IllegalStateException("already open");
@@ -62,6 +76,9 @@ public class FileLocator implements Locator {
 		}
 
 		database = SQLiteDatabase.openOrCreateDatabase(file, null);
+		if (writeAheadLogging) {
+			database.enableWriteAheadLogging();
+		}
 
 		return database;
 	}
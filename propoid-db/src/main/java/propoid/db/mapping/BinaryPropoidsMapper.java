@@ -0,0 +1,204 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.mapping;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import propoid.core.Property;
+import propoid.core.Propoid;
+import propoid.db.Repository;
+import propoid.db.RepositoryException;
+import propoid.db.SQL;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * A mapper for a collection of {@link Propoid}s, storing ids as a blob of
+ * zigzag encoded varints of the differences between successive ids.
+ * <p>
+ * Ids stored as text by {@link PropoidsMapper} are still retrieved and
+ * encoded on the next write, see {@link #migrate(Repository, Property)} to
+ * migrate all at once. Note that {@code Where#hasOne()} is not supported for
+ * binary ids.
+ * 
+ * @see DefaultMapping#setBinary(Property)
+ */
+public class BinaryPropoidsMapper extends PropoidsMapper {
+
+	private Set<Property.Meta> binary = new HashSet<Property.Meta>();
+
+	/**
+	 * Store the ids of the given to-many property binary encoded.
+	 */
+	public void setBinary(Property<?> property) {
+		if (itemType(property) == null) {
+			throw new IllegalArgumentException("no to-many property "
+					+ property);
+		}
+		binary.add(property.meta());
+	}
+
+	@Override
+	public boolean maps(Property<?> property) {
+		return binary.contains(property.meta());
+	}
+
+	@Override
+	protected void bind(SQLiteStatement statement, int index, long[] ids) {
+		if (ids == null) {
+			statement.bindNull(index);
+		} else {
+			statement.bindBlob(index, encode(ids));
+		}
+	}
+
+	@Override
+	protected long[] retrieve(Cursor cursor, int index) {
+		if (cursor.getType(index) == Cursor.FIELD_TYPE_BLOB) {
+			return decode(cursor.getBlob(index));
+		}
+
+		// null or not migrated yet
+		return super.retrieve(cursor, index);
+	}
+
+	@Override
+	public Object argument(Property<Collection<Propoid>> property,
+			Repository repository, Collection<Propoid> value) {
+		return encode(toIds(value));
+	}
+
+	/**
+	 * Migrate all ids of the given property stored as text.
+	 */
+	public void migrate(Repository repository, Property<?> property) {
+		SQLiteDatabase database = repository.getDatabase();
+
+		String table = repository.naming.table(repository,
+				property.propoid.getClass());
+
+		SQL select = new SQL();
+		select.raw("SELECT _id, ");
+		select.escaped(property.meta().name);
+		select.raw(" FROM ");
+		select.escaped(table);
+		select.raw(" WHERE typeof(");
+		select.escaped(property.meta().name);
+		select.raw(") = 'text'");
+
+		SQL update = new SQL();
+		update.raw("UPDATE ");
+		update.escaped(table);
+		update.raw(" SET ");
+		update.escaped(property.meta().name);
+		update.raw(" = ? WHERE _id = ?");
+
+		database.beginTransaction();
+		try {
+			SQLiteStatement statement = database.compileStatement(update
+					.toString());
+			Cursor cursor = database.rawQuery(select.toString(), new String[0]);
+			try {
+				while (cursor.moveToNext()) {
+					statement.bindBlob(1, encode(split(cursor.getString(1))));
+					statement.bindLong(2, cursor.getLong(0));
+					statement.execute();
+				}
+			} finally {
+				cursor.close();
+				statement.close();
+			}
+
+			database.setTransactionSuccessful();
+		} finally {
+			database.endTransaction();
+		}
+	}
+
+	/**
+	 * Encode ids.
+	 */
+	public static byte[] encode(long[] ids) {
+		int size = 0;
+		long previous = 0;
+		for (long id : ids) {
+			long value = zigzag(id - previous);
+			do {
+				size++;
+				value >>>= 7;
+			} while (value != 0);
+			previous = id;
+		}
+
+		byte[] bytes = new byte[size];
+		int b = 0;
+		previous = 0;
+		for (long id : ids) {
+			long value = zigzag(id - previous);
+			while ((value & ~0x7fl) != 0) {
+				bytes[b++] = (byte) ((value & 0x7f) | 0x80);
+				value >>>= 7;
+			}
+			bytes[b++] = (byte) value;
+			previous = id;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Decode ids.
+	 */
+	public static long[] decode(byte[] bytes) {
+		int count = 0;
+		for (byte b : bytes) {
+			if (b >= 0) {
+				// last byte of varint
+				count++;
+			}
+		}
+
+		long[] ids = new long[count];
+		int i = 0;
+		long previous = 0;
+		long value = 0;
+		int shift = 0;
+		for (byte b : bytes) {
+			value |= (long) (b & 0x7f) << shift;
+			if (b < 0) {
+				shift += 7;
+			} else {
+				previous += (value >>> 1) ^ -(value & 1);
+				ids[i++] = previous;
+
+				value = 0;
+				shift = 0;
+			}
+		}
+
+		if (shift != 0) {
+			throw new RepositoryException("invalid ids");
+		}
+
+		return ids;
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+}
@@ -58,8 +58,8 @@ public class BooleanMapper implements Mapper<Boolean> {
 	}
 
 	@Override
-	public String argument(Property<Boolean> newParam, Repository repository,
+	public Object argument(Property<Boolean> newParam, Repository repository,
 			Boolean value) {
-		return value ? "1" : "0";
+		return value ? 1l : 0l;
 	}
 }
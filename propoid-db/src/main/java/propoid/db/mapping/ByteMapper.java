@@ -56,8 +56,8 @@ public class ByteMapper implements Mapper<Byte> {
 	}
 
 	@Override
-	public String argument(Property<Byte> newParam, Repository repository,
+	public Object argument(Property<Byte> newParam, Repository repository,
 			Byte value) {
-		return value.toString();
+		return (long) (((int) value) & 0xff);
 	}
 }
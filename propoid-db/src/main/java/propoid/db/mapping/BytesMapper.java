@@ -20,7 +20,6 @@ import java.lang.reflect.Type;
 
 import propoid.core.Property;
 import propoid.db.Repository;
-import propoid.db.RepositoryException;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteStatement;
 
@@ -61,8 +60,8 @@ public class BytesMapper implements Mapper<byte[]> {
 	}
 
 	@Override
-	public String argument(Property<byte[]> newParam, Repository repository,
+	public Object argument(Property<byte[]> newParam, Repository repository,
 			byte[] value) {
-		throw new RepositoryException("blob arguments not supported");
+		return value;
 	}
 }
@@ -63,7 +63,7 @@ public class CharacterMapper implements Mapper<Character> {
 	}
 
 	@Override
-	public String argument(Property<Character> newParam, Repository repository,
+	public Object argument(Property<Character> newParam, Repository repository,
 			Character value) {
 		return Character.toString(value);
 	}
@@ -67,7 +67,7 @@ public class ClassMapper implements Mapper<Class> {
 	}
 
 	@Override
-	public String argument(Property<Class> newParam, Repository repository,
+	public Object argument(Property<Class> newParam, Repository repository,
 			Class value) {
 		return value.getName();
 	}
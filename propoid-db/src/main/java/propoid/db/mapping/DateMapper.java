@@ -58,8 +58,8 @@ public class DateMapper implements Mapper<Date> {
 	}
 
 	@Override
-	public String argument(Property<Date> newParam, Repository repository,
+	public Object argument(Property<Date> newParam, Repository repository,
 			Date value) {
-		return Long.toString(value.getTime());
+		return value.getTime();
 	}
 }
@@ -16,9 +16,9 @@
 package propoid.db.mapping;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import propoid.core.Property;
 import propoid.db.Mapping;
@@ -30,10 +30,18 @@ import propoid.db.RepositoryException;
  */
 public class DefaultMapping implements Mapping {
 
-	private Map<Property.Meta, Mapper<?>> cache = new HashMap<Property.Meta, Mapper<?>>();
+	/**
+	 * Mappers are looked up concurrently, e.g. by readers of an
+	 * {@link propoid.db.AsyncRepository}.
+	 */
+	private Map<Property.Meta, Mapper<?>> cache = new ConcurrentHashMap<Property.Meta, Mapper<?>>();
 
 	private List<Mapper<?>> mappers = new ArrayList<Mapper<?>>();
 
+	private JoinedPropoidsMapper joined = new JoinedPropoidsMapper();
+
+	private BinaryPropoidsMapper binary = new BinaryPropoidsMapper();
+
 	public DefaultMapping() {
 		registerDefaults();
 	}
@@ -55,9 +63,31 @@ public class DefaultMapping implements Mapping {
 		register(new LocationMapper());
 		register(new EnumMapper());
 		register(new PropoidMapper());
+		register(joined);
+		register(binary);
 		register(new PropoidsMapper());
 	}
 
+	/**
+	 * Store the given to-many property in a join table - must be called
+	 * before the property is mapped for the first time.
+	 * 
+	 * @see JoinedPropoidsMapper
+	 */
+	public void setJoined(Property<?> property) {
+		joined.setJoined(property);
+	}
+
+	/**
+	 * Store the ids of the given to-many property binary encoded - must be
+	 * called before the property is mapped for the first time.
+	 * 
+	 * @see BinaryPropoidsMapper
+	 */
+	public void setBinary(Property<?> property) {
+		binary.setBinary(property);
+	}
+
 	public void register(Mapper<?> mapper) {
 		mappers.add(mapper);
 	}
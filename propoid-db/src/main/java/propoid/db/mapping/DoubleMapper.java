@@ -57,8 +57,8 @@ public class DoubleMapper implements Mapper<Double> {
 	}
 
 	@Override
-	public String argument(Property<Double> newParam, Repository repository,
+	public Object argument(Property<Double> newParam, Repository repository,
 			Double value) {
-		return value.toString();
+		return value;
 	}
 }
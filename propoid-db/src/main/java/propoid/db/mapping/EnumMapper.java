@@ -60,7 +60,7 @@ public class EnumMapper implements Mapper<Enum> {
 	}
 
 	@Override
-	public String argument(Property<Enum> newParam, Repository repository,
+	public Object argument(Property<Enum> newParam, Repository repository,
 			Enum value) {
 		return value.name();
 	}
@@ -57,8 +57,8 @@ public class FloatMapper implements Mapper<Float> {
 	}
 
 	@Override
-	public String argument(Property<Float> newParam, Repository repository,
+	public Object argument(Property<Float> newParam, Repository repository,
 			Float value) {
-		return value.toString();
+		return value.doubleValue();
 	}
 }
@@ -57,8 +57,8 @@ public class IntegerMapper implements Mapper<Integer> {
 	}
 
 	@Override
-	public String argument(Property<Integer> newParam, Repository repository,
+	public Object argument(Property<Integer> newParam, Repository repository,
 			Integer value) {
-		return value.toString();
+		return value.longValue();
 	}
 }
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.mapping;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import propoid.core.Property;
+import propoid.core.PropertyAspect;
+import propoid.core.Propoid;
+import propoid.db.Repository;
+import propoid.db.SQL;
+import propoid.db.aspect.JoinedToManyRelation;
+import propoid.db.aspect.Row;
+import propoid.db.aspect.ToManyRelation;
+import propoid.db.operation.Insert;
+import propoid.db.operation.Statements;
+import propoid.db.schema.Column;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDatabase.CursorFactory;
+import android.database.sqlite.SQLiteQuery;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * A mapper for a collection of {@link Propoid}s stored in a join table with
+ * columns {@code owner}, {@code position} and {@code item}, indexed by item.
+ * <p>
+ * The column of the property itself is {@code NULL} for a {@code null}
+ * collection and empty otherwise. Id lists stored by {@link PropoidsMapper}
+ * are migrated into the join table when it is created.
+ * 
+ * @see DefaultMapping#setJoined(Property)
+ */
+public class JoinedPropoidsMapper extends PropoidsMapper {
+
+	private Set<Property.Meta> joined = new HashSet<Property.Meta>();
+
+	/**
+	 * Store the given to-many property in a join table.
+	 */
+	public void setJoined(Property<?> property) {
+		if (itemType(property) == null) {
+			throw new IllegalArgumentException("no to-many property "
+					+ property);
+		}
+		joined.add(property.meta());
+	}
+
+	@Override
+	public boolean maps(Property<?> property) {
+		return joined.contains(property.meta());
+	}
+
+	@Override
+	public void bind(Property<Collection<Propoid>> property,
+			Repository repository, SQLiteStatement statement, int index) {
+		boolean present;
+
+		ToManyRelation relation = PropertyAspect.find(property,
+				ToManyRelation.class);
+		if (relation == null || relation.loaded) {
+			present = property.getInternal() != null;
+		} else if (relation instanceof JoinedToManyRelation) {
+			present = ((JoinedToManyRelation) relation).present;
+		} else {
+			present = relation.ids != null;
+		}
+
+		if (present) {
+			statement.bindString(index, "");
+		} else {
+			statement.bindNull(index);
+		}
+	}
+
+	@Override
+	public void retrieve(Property<Collection<Propoid>> property,
+			Repository repository, Cursor cursor, int index) {
+
+		property.setInternal(null);
+
+		boolean present;
+		long[] ids = null;
+		if (cursor.isNull(index)) {
+			present = false;
+		} else {
+			present = true;
+
+			String string = cursor.getString(index);
+			if (string.length() > 0) {
+				// not migrated yet
+				ids = split(string);
+			}
+		}
+
+		ToManyRelation relation = PropertyAspect.find(property,
+				ToManyRelation.class);
+		if (relation instanceof JoinedToManyRelation) {
+			relation.loaded = false;
+			relation.repository = repository;
+			relation.ids = ids;
+			((JoinedToManyRelation) relation).present = present;
+		} else {
+			new JoinedToManyRelation(property, repository, present, ids);
+		}
+	}
+
+	/**
+	 * Get the name of the join table for the given property.
+	 */
+	public static String table(Repository repository, Property<?> property) {
+		return repository.naming.table(repository,
+				property.propoid.getClass())
+				+ "_" + property.meta().name;
+	}
+
+	/**
+	 * Create the join table if not existing, migrating id lists stored by
+	 * {@link PropoidsMapper}.
+	 */
+	public void schema(Repository repository, Property<?> property) {
+		SQLiteDatabase database = repository.getDatabase();
+
+		String table = table(repository, property);
+		if (Column.exists(table, database)) {
+			return;
+		}
+
+		database.beginTransaction();
+		try {
+			SQL create = new SQL();
+			create.raw("CREATE TABLE ");
+			create.escaped(table);
+			create.raw(" (owner INTEGER NOT NULL, position INTEGER NOT NULL, item INTEGER, PRIMARY KEY (owner, position))");
+			database.execSQL(create.toString());
+
+			SQL index = new SQL();
+			index.raw("CREATE INDEX ");
+			index.escaped(table + "_item");
+			index.raw(" ON ");
+			index.escaped(table);
+			index.raw(" (item)");
+			database.execSQL(index.toString());
+
+			migrate(repository, property);
+
+			database.setTransactionSuccessful();
+		} finally {
+			database.endTransaction();
+		}
+	}
+
+	private void migrate(Repository repository, Property<?> property) {
+		String owners = repository.naming.table(repository,
+				property.propoid.getClass());
+
+		SQL select = new SQL();
+		select.raw("SELECT _id, ");
+		select.escaped(property.meta().name);
+		select.raw(" FROM ");
+		select.escaped(owners);
+		select.raw(" WHERE ");
+		select.escaped(property.meta().name);
+		select.raw(" <> ''");
+
+		SQLiteStatement insert = repository.getDatabase().compileStatement(
+				insert(repository, property).toString());
+		Cursor cursor = repository.getDatabase().rawQuery(select.toString(),
+				new String[0]);
+		try {
+			while (cursor.moveToNext()) {
+				insert(insert, cursor.getLong(0), split(cursor.getString(1)));
+			}
+		} finally {
+			cursor.close();
+			insert.close();
+		}
+
+		SQL update = new SQL();
+		update.raw("UPDATE ");
+		update.escaped(owners);
+		update.raw(" SET ");
+		update.escaped(property.meta().name);
+		update.raw(" = '' WHERE ");
+		update.escaped(property.meta().name);
+		update.raw(" <> ''");
+		repository.getDatabase().execSQL(update.toString());
+	}
+
+	/**
+	 * Select the ids of the items of the given property.
+	 */
+	public static long[] select(Repository repository, Property<?> property) {
+		SQL sql = new SQL();
+		sql.raw("SELECT item FROM ");
+		sql.escaped(table(repository, property));
+		sql.raw(" WHERE owner = ? ORDER BY position");
+
+		final long owner = Row.getID(property.propoid);
+
+		Cursor cursor = repository.getDatabase().rawQueryWithFactory(
+				new CursorFactory() {
+					@Override
+					public Cursor newCursor(SQLiteDatabase database,
+							SQLiteCursorDriver driver, String editTable,
+							SQLiteQuery query) {
+						query.bindLong(1, owner);
+
+						return new SQLiteCursor(driver, editTable, query);
+					}
+				}, sql.toString(), null, null);
+		try {
+			long[] ids = new long[cursor.getCount()];
+			for (int i = 0; i < ids.length; i++) {
+				cursor.moveToNext();
+
+				ids[i] = cursor.isNull(0) ? Row.TRANSIENT : cursor.getLong(0);
+			}
+			return ids;
+		} finally {
+			cursor.close();
+		}
+	}
+
+	/**
+	 * Write the items of the given property, if it is loaded.
+	 * <p>
+	 * Has to be called inside the transaction writing the owner, the
+	 * statement is taken from the repository's {@link Statements}.
+	 * 
+	 * @param owner
+	 *            id of the owning propoid
+	 */
+	@SuppressWarnings("unchecked")
+	public void write(Repository repository, Property<?> property, long owner) {
+		ToManyRelation relation = PropertyAspect.find(property,
+				ToManyRelation.class);
+		if (relation != null && !relation.loaded) {
+			// unchanged
+			return;
+		}
+
+		delete(repository, property, owner);
+
+		long[] ids = toIds((Collection<Propoid>) property
+				.getInternal());
+		if (ids != null) {
+			Statements statements = repository.getStatements();
+			Statements.Key key = new Statements.Key(Insert.class,
+					property.propoid.getClass(), variant(property));
+
+			SQLiteStatement insert = statements.acquire(key);
+			if (insert == null) {
+				insert = statements.compile(repository.getDatabase(), key,
+						insert(repository, property).toString());
+			}
+			try {
+				insert(insert, owner, ids);
+			} finally {
+				statements.release(key, insert);
+			}
+		}
+	}
+
+	/**
+	 * Variant of the insert statement for the join table of the given
+	 * property, negative to not clash with the insert of its propoid.
+	 */
+	private long variant(Property<?> property) {
+		int p = 0;
+		for (Property<?> other : property.propoid.properties()) {
+			if (other.meta() == property.meta()) {
+				break;
+			}
+			p++;
+		}
+		return -1 - p;
+	}
+
+	/**
+	 * Delete the items of the given property.
+	 * 
+	 * @param owner
+	 *            id of the owning propoid
+	 */
+	public void delete(Repository repository, Property<?> property, long owner) {
+		SQL sql = new SQL();
+		sql.raw("DELETE FROM ");
+		sql.escaped(table(repository, property));
+		sql.raw(" WHERE owner = ?");
+
+		repository.getDatabase().execSQL(sql.toString(),
+				new Object[] { owner });
+	}
+
+	/**
+	 * Delete the items of all deleted owners of the given property.
+	 */
+	public void deleteOrphans(Repository repository, Property<?> property) {
+		SQL sql = new SQL();
+		sql.raw("DELETE FROM ");
+		sql.escaped(table(repository, property));
+		sql.raw(" WHERE owner NOT IN (SELECT _id FROM ");
+		sql.escaped(repository.naming.table(repository,
+				property.propoid.getClass()));
+		sql.raw(")");
+
+		repository.getDatabase().execSQL(sql.toString());
+	}
+
+	private SQL insert(Repository repository, Property<?> property) {
+		SQL sql = new SQL();
+		sql.raw("INSERT INTO ");
+		sql.escaped(table(repository, property));
+		sql.raw(" (owner, position, item) VALUES (?, ?, ?)");
+
+		return sql;
+	}
+
+	private void insert(SQLiteStatement insert, long owner, long[] ids) {
+		for (int i = 0; i < ids.length; i++) {
+			insert.bindLong(1, owner);
+			insert.bindLong(2, i);
+			if (ids[i] == Row.TRANSIENT) {
+				insert.bindNull(3);
+			} else {
+				insert.bindLong(3, ids[i]);
+			}
+			insert.executeInsert();
+		}
+	}
+}
@@ -58,7 +58,7 @@ public class LocaleMapper implements Mapper<Locale> {
 	}
 
 	@Override
-	public String argument(Property<Locale> newParam, Repository repository,
+	public Object argument(Property<Locale> newParam, Repository repository,
 			Locale value) {
 		return value.toString();
 	}
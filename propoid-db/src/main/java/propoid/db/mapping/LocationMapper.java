@@ -79,7 +79,7 @@ public class LocationMapper implements Mapper<Location> {
 	}
 
 	@Override
-	public String argument(Property<Location> newParam, Repository repository,
+	public Object argument(Property<Location> newParam, Repository repository,
 			Location value) {
 		return toString(value, format, separator);
 	}
@@ -56,8 +56,8 @@ public class LongMapper implements Mapper<Long> {
 	}
 
 	@Override
-	public String argument(Property<Long> newParam, Repository repository,
+	public Object argument(Property<Long> newParam, Repository repository,
 			Long value) {
-		return value.toString();
+		return value;
 	}
 }
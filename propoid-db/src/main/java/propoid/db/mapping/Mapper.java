@@ -77,7 +77,8 @@ public interface Mapper<T> {
 	 *            the repository
 	 * @param value
 	 *            value to get as argument
-	 * @return query argument
+	 * @return query argument, either {@link String}, {@link Long},
+	 *         {@link Double} or {@code byte[]}
 	 */
-	public String argument(Property<T> property, Repository repository, T value);
+	public Object argument(Property<T> property, Repository repository, T value);
 }
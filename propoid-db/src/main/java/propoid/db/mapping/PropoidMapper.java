@@ -98,14 +98,14 @@ public class PropoidMapper implements Mapper<Propoid>, Cascader<Propoid> {
 	}
 
 	@Override
-	public String argument(Property<Propoid> newParam, Repository repository,
+	public Object argument(Property<Propoid> newParam, Repository repository,
 			Propoid value) {
 		long id = Row.getID(value);
 		if (id == Row.TRANSIENT) {
 			throw new RepositoryException(
 					"transient propoid cannot be used as argument");
 		}
-		return Long.toString(id);
+		return id;
 	}
 
 	@Override
@@ -66,6 +66,13 @@ public class PropoidsMapper implements Mapper<Collection<Propoid>>, Cascader<Col
 			ids = relation.ids;
 		}
 
+		bind(statement, index, ids);
+	}
+
+	/**
+	 * Bind ids to a statement.
+	 */
+	protected void bind(SQLiteStatement statement, int index, long[] ids) {
 		if (ids == null) {
 			statement.bindNull(index);
 		} else {
@@ -79,12 +86,7 @@ public class PropoidsMapper implements Mapper<Collection<Propoid>>, Cascader<Col
 
 		property.setInternal(null);
 
-		long[] ids;
-		if (cursor.isNull(index)) {
-			ids = null;
-		} else {
-			ids = split(cursor.getString(index));
-		}
+		long[] ids = retrieve(cursor, index);
 
 		ToManyRelation relation = PropertyAspect.find(property, ToManyRelation.class);
 		if (relation == null) {
@@ -96,8 +98,19 @@ public class PropoidsMapper implements Mapper<Collection<Propoid>>, Cascader<Col
 		}
 	}
 
+	/**
+	 * Retrieve ids from a cursor.
+	 */
+	protected long[] retrieve(Cursor cursor, int index) {
+		if (cursor.isNull(index)) {
+			return null;
+		} else {
+			return split(cursor.getString(index));
+		}
+	}
+
 	@Override
-	public String argument(Property<Collection<Propoid>> newParam, Repository repository,
+	public Object argument(Property<Collection<Propoid>> newParam, Repository repository,
 						   Collection<Propoid> value) {
 
 		long[] ids = toIds(value);
@@ -158,7 +171,7 @@ public class PropoidsMapper implements Mapper<Collection<Propoid>>, Cascader<Col
 		}
 	}
 
-	private String join(long[] longs) {
+	protected String join(long[] longs) {
 		StringBuilder string = new StringBuilder();
 
 		for (int l = 0; l < longs.length; l++) {
@@ -170,7 +183,7 @@ public class PropoidsMapper implements Mapper<Collection<Propoid>>, Cascader<Col
 		return string.toString();
 	}
 
-	private long[] split(String string) {
+	protected long[] split(String string) {
 		int count = 0;
 		for (int c = 0; c < string.length(); c++) {
 			if (string.charAt(c) == ID_PREFIX) {
@@ -208,7 +221,7 @@ public class PropoidsMapper implements Mapper<Collection<Propoid>>, Cascader<Col
 		return false;
 	}
 
-	private long[] toIds(Collection<Propoid> propoids) {
+	protected long[] toIds(Collection<Propoid> propoids) {
 		if (propoids == null) {
 			return null;
 		}
@@ -56,8 +56,8 @@ public class ShortMapper implements Mapper<Short> {
 	}
 
 	@Override
-	public String argument(Property<Short> newParam, Repository repository,
+	public Object argument(Property<Short> newParam, Repository repository,
 			Short value) {
-		return value.toString();
+		return (long) (((int) value) & 0xffff);
 	}
 }
@@ -57,7 +57,7 @@ public class StringMapper implements Mapper<String> {
 	}
 
 	@Override
-	public String argument(Property<String> newParam, Repository repository,
+	public Object argument(Property<String> newParam, Repository repository,
 			String value) {
 		return value;
 	}
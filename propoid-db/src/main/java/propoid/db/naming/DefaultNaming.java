@@ -15,24 +15,34 @@
  */
 package propoid.db.naming;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import propoid.core.Propoid;
 import propoid.db.Naming;
 import propoid.db.Repository;
 import propoid.db.RepositoryException;
+import propoid.db.schema.Column;
 
 /**
  * Default naming.
  */
 public class DefaultNaming implements Naming {
 
-	private Map<Class<? extends Propoid>, String> toTable = new HashMap<Class<? extends Propoid>, String>();
+	/**
+	 * Cached encoding of a class without a type indicator, since concurrent
+	 * maps do not support {@code null} values.
+	 */
+	private static final String NO_TYPE = new String();
+
+	private Map<Class<? extends Propoid>, String> toTable = new ConcurrentHashMap<Class<? extends Propoid>, String>();
+
+	private Map<Class<? extends Propoid>, String> toType = new ConcurrentHashMap<Class<? extends Propoid>, String>();
 
-	private Map<Class<? extends Propoid>, String> toType = new HashMap<Class<? extends Propoid>, String>();
+	private ConcurrentMap<Class<? extends Propoid>, Map<String, Class<? extends Propoid>>> fromType = new ConcurrentHashMap<Class<? extends Propoid>, Map<String, Class<? extends Propoid>>>();
 
-	private Map<String, Class<? extends Propoid>> fromType = new HashMap<String, Class<? extends Propoid>>();
+	private Map<Class<? extends Propoid>, Class<? extends Propoid>> fromNoType = new ConcurrentHashMap<Class<? extends Propoid>, Class<? extends Propoid>>();
 
 	@Override
 	public String table(Repository repository, Class<? extends Propoid> clazz) {
@@ -44,25 +54,55 @@ public class DefaultNaming implements Naming {
 		return cached;
 	}
 
+	/**
+	 * Get the database type of type indicators, {@link Column#TEXT} by
+	 * default.
+	 */
+	public String encodedType(Repository repository) {
+		return Column.TEXT;
+	}
+
 	@Override
 	public String encodeType(Repository repository, Class<? extends Propoid> clazz) {
 		String cached = toType.get(clazz);
 		if (cached == null) {
 			cached = encodeTypeImpl(repository, clazz);
-			toType.put(clazz, cached);
+			toType.put(clazz, cached == null ? NO_TYPE : cached);
+		} else if (cached == NO_TYPE) {
+			cached = null;
 		}
 		return cached;
 	}
 
+	/**
+	 * Decoding is cached per class and type, including rows without a type
+	 * (i.e. all rows of a class without persisted subclasses).
+	 */
 	@Override
 	public Class<? extends Propoid> decodeType(Repository repository,
 			Class<? extends Propoid> clazz, String type) {
-		String key = clazz.getName() + ":" + type;
+		if (type == null) {
+			Class<? extends Propoid> cached = fromNoType.get(clazz);
+			if (cached == null) {
+				cached = decodeTypeImpl(repository, clazz, null);
+				fromNoType.put(clazz, cached);
+			}
+			return cached;
+		}
+
+		Map<String, Class<? extends Propoid>> types = fromType.get(clazz);
+		if (types == null) {
+			Map<String, Class<? extends Propoid>> created = new ConcurrentHashMap<String, Class<? extends Propoid>>(4);
+			types = fromType.putIfAbsent(clazz, created);
+			if (types == null) {
+				types = created;
+			}
+		}
 
-		Class<? extends Propoid> cached = fromType.get(key);
+		Class<? extends Propoid> cached = types.get(type);
 		if (cached == null) {
 			cached = decodeTypeImpl(repository, clazz, type);
-			fromType.put(key, cached);
+			types.put(type, cached);
 		}
 		return cached;
 	}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.naming;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import propoid.core.Propoid;
+import propoid.db.Repository;
+import propoid.db.RepositoryException;
+import propoid.db.SQL;
+import propoid.db.schema.Column;
+import propoid.db.version.Upgrade;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * A naming storing type indicators as compact integers. Each class is
+ * registered with its code in the table {@value #REGISTRY}.
+ * <p>
+ * Tables with textual type indicators (as written by {@link DefaultNaming})
+ * have to be upgraded explicitly with {@link UpgradeTypes}.
+ */
+public class IntegerNaming extends DefaultNaming {
+
+	/**
+	 * Name of the table registering the codes of classes.
+	 */
+	public static final String REGISTRY = "_types";
+
+	@Override
+	public String encodedType(Repository repository) {
+		return Column.INTEGER;
+	}
+
+	/**
+	 * Creates the registry.
+	 */
+	@Override
+	protected String tableImpl(Repository repository,
+			Class<? extends Propoid> clazz) {
+		String table = super.tableImpl(repository, clazz);
+
+		registry(repository.getDatabase());
+
+		return table;
+	}
+
+	/**
+	 * Encode the given class as its registered code, {@code null} if it
+	 * hasn't an ancestor.
+	 */
+	@Override
+	protected String encodeTypeImpl(Repository repository,
+			Class<? extends Propoid> clazz) {
+		if (super.encodeTypeImpl(repository, clazz) == null) {
+			return null;
+		}
+
+		return Long.toString(register(repository.getDatabase(), clazz));
+	}
+
+	/**
+	 * Decode the class from its registered code, assuming the given class
+	 * itself if {@code null}.
+	 */
+	@Override
+	protected Class<? extends Propoid> decodeTypeImpl(Repository repository,
+			Class<? extends Propoid> clazz, String type) {
+		if (type == null) {
+			return clazz;
+		}
+
+		try {
+			return lookup(repository, Long.parseLong(type));
+		} catch (NumberFormatException ex) {
+			throw new RepositoryException("invalid type " + type
+					+ ", not upgraded yet?", ex);
+		}
+	}
+
+	private static List<String> types(SQLiteDatabase database, String table) {
+		SQL sql = new SQL();
+		sql.raw("SELECT DISTINCT _type FROM ");
+		sql.escaped(table);
+		sql.raw(" WHERE _type IS NOT NULL");
+
+		List<String> types = new ArrayList<String>();
+
+		Cursor cursor = database.rawQuery(sql.toString(), new String[0]);
+		try {
+			while (cursor.moveToNext()) {
+				types.add(cursor.getString(0));
+			}
+		} finally {
+			cursor.close();
+		}
+
+		return types;
+	}
+
+	/**
+	 * Register the given class, concurrent registrations of the same class
+	 * result in the same code.
+	 */
+	private static long register(SQLiteDatabase database,
+			Class<? extends Propoid> clazz) {
+		database.beginTransactionNonExclusive();
+		try {
+			SQL sql = new SQL();
+			sql.raw("INSERT OR IGNORE INTO ");
+			sql.escaped(REGISTRY);
+			sql.raw(" (name) VALUES (?)");
+
+			database.execSQL(sql.toString(), new Object[] { clazz.getName() });
+
+			sql = new SQL();
+			sql.raw("SELECT _id FROM ");
+			sql.escaped(REGISTRY);
+			sql.raw(" WHERE name = ?");
+
+			long code;
+			Cursor cursor = database.rawQuery(sql.toString(),
+					new String[] { clazz.getName() });
+			try {
+				cursor.moveToFirst();
+				code = cursor.getLong(0);
+			} finally {
+				cursor.close();
+			}
+
+			database.setTransactionSuccessful();
+
+			return code;
+		} finally {
+			database.endTransaction();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Class<? extends Propoid> lookup(Repository repository, long code) {
+		SQLiteDatabase database = repository.getDatabase();
+
+		SQL sql = new SQL();
+		sql.raw("SELECT name FROM ");
+		sql.escaped(REGISTRY);
+		sql.raw(" WHERE _id = ?");
+
+		Cursor cursor = database.rawQuery(sql.toString(),
+				new String[] { Long.toString(code) });
+		try {
+			if (!cursor.moveToFirst()) {
+				throw new RepositoryException("unknown type " + code);
+			}
+
+			return (Class<? extends Propoid>) Class.forName(cursor
+					.getString(0));
+		} catch (ClassNotFoundException ex) {
+			throw new RepositoryException(ex);
+		} finally {
+			cursor.close();
+		}
+	}
+
+	private static void registry(SQLiteDatabase database) {
+		SQL sql = new SQL();
+		sql.raw("CREATE TABLE IF NOT EXISTS ");
+		sql.escaped(REGISTRY);
+		sql.raw(" (_id INTEGER PRIMARY KEY, name TEXT UNIQUE NOT NULL)");
+
+		database.execSQL(sql.toString());
+	}
+
+	/**
+	 * Upgrade of a table with textual type indicators (as written by
+	 * {@link DefaultNaming}) to registered codes.
+	 * <p>
+	 * The declared type of the column is kept, since codes are stored
+	 * according to its affinity anyway - thus the table is not rebuilt and all
+	 * its indices are kept.
+	 * 
+	 * @see propoid.db.version.DefaultVersioning#add(Upgrade)
+	 */
+	public static class UpgradeTypes implements Upgrade {
+
+		private final String table;
+
+		private final Class<? extends Propoid> ancestor;
+
+		/**
+		 * @param table
+		 *            table to upgrade
+		 * @param ancestor
+		 *            ancestor of all classes stored in the table
+		 */
+		public UpgradeTypes(String table, Class<? extends Propoid> ancestor) {
+			this.table = table;
+			this.ancestor = ancestor;
+		}
+
+		@Override
+		public void apply(SQLiteDatabase database) {
+			registry(database);
+
+			DefaultNaming textual = new DefaultNaming();
+
+			for (String type : types(database, table)) {
+				try {
+					Long.parseLong(type);
+
+					// upgraded already
+					continue;
+				} catch (NumberFormatException textualType) {
+				}
+
+				// textual decoding does not need a repository
+				Class<? extends Propoid> clazz = textual.decodeTypeImpl(null,
+						ancestor, type);
+
+				SQL sql = new SQL();
+				sql.raw("UPDATE ");
+				sql.escaped(table);
+				sql.raw(" SET _type = ? WHERE _type = ?");
+
+				database.execSQL(sql.toString(), new Object[] {
+						register(database, clazz), type });
+			}
+		}
+	}
+}
@@ -18,21 +18,75 @@ package propoid.db.observer;
 import android.content.ContentResolver;
 import android.content.Context;
 
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 import propoid.core.Propoid;
-import propoid.db.Observer;
 import propoid.db.Reference;
 import propoid.db.Setting;
+import propoid.db.TransactionObserver;
 import propoid.db.aspect.Row;
+import propoid.db.operation.Query;
 
 /**
  * Observer of changes on {@link Propoid}s, that notifies {@link android.database.ContentObserver}s.
+ * <p>
+ * Notifications within a transaction are buffered, de-duplicated per {@code Uri} and dispatched
+ * once after the transaction was committed.
  */
-public class DefaultObserver implements Observer {
+public class DefaultObserver implements TransactionObserver {
+
+	/**
+	 * Dispatcher shared by all observers.
+	 */
+	private static Executor shared;
 
 	private final ContentResolver contentResolver;
 
+	private final Executor dispatcher;
+
+	private int threshold = 100;
+
+	private final ThreadLocal<Changes> changes = new ThreadLocal<>();
+
+	/**
+	 * Observer using a single dispatcher shared by all observers.
+	 */
 	public DefaultObserver(Context context) {
+		this(context, dispatcher());
+	}
+
+	/**
+	 * Observer using the given dispatcher for notifications of committed transactions.
+	 */
+	public DefaultObserver(Context context, Executor dispatcher) {
 		this.contentResolver = context.getContentResolver();
+		this.dispatcher = dispatcher;
+	}
+
+	private static synchronized Executor dispatcher() {
+		if (shared == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<Runnable>());
+			executor.allowCoreThreadTimeOut(true);
+			shared = executor;
+		}
+		return shared;
+	}
+
+	/**
+	 * Set the number of changed propoids of a single class in a transaction, above which a
+	 * single change of their class is notified instead, default is {@code 100}.
+	 */
+	public void setThreshold(int threshold) {
+		this.threshold = threshold;
 	}
 
 	public void onInsert(Propoid propoid) {
@@ -47,6 +101,75 @@ public class DefaultObserver implements Observer {
 		notify(propoid);
 	}
 
+	public void onInsertAll(Iterable<? extends Propoid> propoids) {
+		notify(propoids);
+	}
+
+	public void onUpdateAll(Iterable<? extends Propoid> propoids) {
+		notify(propoids);
+	}
+
+	public void onBegin() {
+		Changes changes = this.changes.get();
+		if (changes == null) {
+			changes = new Changes();
+			this.changes.set(changes);
+		}
+		changes.depth++;
+	}
+
+	public void onCommit() {
+		end(true);
+	}
+
+	public void onRollback() {
+		end(false);
+	}
+
+	private void end(boolean committed) {
+		Changes changes = this.changes.get();
+
+		if (!committed) {
+			// a nested rollback rolls back the outermost transaction too
+			changes.rolledBack = true;
+		}
+
+		if (--changes.depth == 0) {
+			this.changes.remove();
+
+			if (!changes.rolledBack && !changes.uris.isEmpty()) {
+				dispatcher.execute(changes);
+			}
+		}
+	}
+
+	/**
+	 * Notify a single change for each class of the given propoids and <em>all</em> their
+	 * superclasses. Observers of single propoids will be notified too, since their {@code Uri}s
+	 * descend from the {@code Uri} of their class.
+	 *
+	 * @param propoids
+	 */
+	private void notify(Iterable<? extends Propoid> propoids) {
+		Set<Class<? extends Propoid>> classes = new HashSet<>();
+
+		Changes changes = this.changes.get();
+
+		for (Propoid propoid : propoids) {
+			Class<? extends Propoid> clazz = propoid.getClass();
+
+			while (clazz != Propoid.class && classes.add(clazz)) {
+				if (changes == null) {
+					contentResolver.notifyChange(Query.getUri(clazz), null);
+				} else {
+					changes.add(clazz, null);
+				}
+
+				clazz = (Class<? extends Propoid>) clazz.getSuperclass();
+			}
+		}
+	}
+
 	/**
 	 * Notify a change for the propoid's class and <em>all</em> its superclasses. This way observers
 	 * of a superclass will be notified too, although {@code Uri}s do not actually support
@@ -58,10 +181,68 @@ public class DefaultObserver implements Observer {
 		Class<? extends Propoid> clazz = propoid.getClass();
 		long id = Row.getID(propoid);
 
+		Changes changes = this.changes.get();
+
 		while (clazz != Propoid.class) {
-			contentResolver.notifyChange(new Reference<Propoid>(clazz, id).toUri(), null);
+			if (changes == null) {
+				contentResolver.notifyChange(new Reference<Propoid>(clazz, id).toUri(), null);
+			} else {
+				changes.add(clazz, id);
+			}
 
 			clazz = (Class<? extends Propoid>) clazz.getSuperclass();
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Changes within a transaction.
+	 */
+	private class Changes implements Runnable {
+
+		int depth;
+
+		boolean rolledBack;
+
+		/**
+		 * Ids of changed propoids for each class, {@code null} for a change of the whole class.
+		 */
+		final Map<Class<? extends Propoid>, Set<Long>> uris = new LinkedHashMap<>();
+
+		void add(Class<? extends Propoid> clazz, Long id) {
+			if (uris.containsKey(clazz)) {
+				Set<Long> ids = uris.get(clazz);
+				if (ids != null) {
+					if (id == null || (ids.add(id) && ids.size() > threshold)) {
+						// collapse to class
+						uris.put(clazz, null);
+					}
+				}
+			} else {
+				Set<Long> ids = null;
+				if (id != null) {
+					ids = new LinkedHashSet<>();
+					ids.add(id);
+				}
+				uris.put(clazz, ids);
+			}
+		}
+
+		/**
+		 * Called by the dispatcher.
+		 */
+		@Override
+		public void run() {
+			for (Map.Entry<Class<? extends Propoid>, Set<Long>> entry : uris.entrySet()) {
+				Class<? extends Propoid> clazz = entry.getKey();
+
+				if (entry.getValue() == null) {
+					contentResolver.notifyChange(Query.getUri(clazz), null);
+				} else {
+					for (Long id : entry.getValue()) {
+						contentResolver.notifyChange(new Reference<Propoid>(clazz, id).toUri(), null);
+					}
+				}
+			}
+		}
+	}
+}
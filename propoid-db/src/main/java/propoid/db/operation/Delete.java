@@ -21,7 +21,9 @@ import propoid.db.Repository;
 import propoid.db.RepositoryException;
 import propoid.db.SQL;
 import propoid.db.aspect.Row;
+import propoid.db.mapping.JoinedPropoidsMapper;
 import propoid.db.mapping.Mapper;
+import android.database.sqlite.SQLiteStatement;
 
 /**
  * Delete a single {@link Propoid}.
@@ -32,7 +34,6 @@ public class Delete extends Operation {
 		super(repository);
 	}
 
-	@SuppressWarnings("unchecked")
 	public void now(Propoid propoid) {
 		long id = Row.getID(propoid);
 		if (id == Row.TRANSIENT) {
@@ -40,17 +41,46 @@ public class Delete extends Operation {
 		}
 
 		for (Property<?> property : propoid.properties()) {
-			Mapper<Object> mapper = (Mapper<Object>) repository.mapping.getMapper(repository, property);
+			Mapper<?> mapper = repository.mapping.getMapper(repository, property);
 
 			beforeBind(property, mapper);
+
+			if (mapper instanceof JoinedPropoidsMapper) {
+				((JoinedPropoidsMapper) mapper).delete(repository, property, id);
+			}
+		}
+
+		Statements.Key key = new Statements.Key(Delete.class,
+				propoid.getClass(), 0);
+
+		SQLiteStatement statement = repository.getStatements().acquire(key);
+		if (statement == null) {
+			statement = repository.getStatements().compile(
+					repository.getDatabase(), key, sql(propoid).toString());
+		}
+		try {
+			statement.bindLong(1, id);
+
+			long start = System.nanoTime();
+
+			statement.executeUpdateDelete();
+
+			instrument("Delete", repository.getStatements().sql(key), 1, -1,
+					start);
+		} finally {
+			repository.getStatements().release(key, statement);
 		}
 
+		repository.invalidate(propoid);
+	}
+
+	private SQL sql(Propoid propoid) {
 		SQL sql = new SQL();
 		sql.raw("DELETE FROM ");
 		sql.escaped(repository.naming.table(repository, propoid.getClass()));
 		sql.raw(" WHERE _id = ?");
 
-		repository.getDatabase().execSQL(sql.toString(), new Object[] { id });
+		return sql;
 	}
 
 	@Override
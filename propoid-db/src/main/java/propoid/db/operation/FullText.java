@@ -0,0 +1,127 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.operation;
+
+import propoid.core.Property;
+import propoid.db.Repository;
+import propoid.db.SQL;
+import propoid.db.schema.Column;
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * Index a {@link String} property for full-text search.
+ * <p>
+ * The text is copied into a shadow FTS4 table, kept in sync by triggers on
+ * the table of the property's propoid, with the propoid's id as docid.
+ * 
+ * @see propoid.db.Where#matches(Property, String)
+ */
+public class FullText extends Operation {
+
+	public FullText(Repository repository) {
+		super(repository);
+	}
+
+	public void now(Property<String> property) {
+		SQLiteDatabase database = repository.getDatabase();
+
+		String table = repository.naming.table(repository,
+				property.propoid.getClass());
+		String fts = table(repository, property);
+		String column = property.meta().name;
+
+		if (Column.exists(fts, database)) {
+			// already indexed
+			return;
+		}
+
+		database.beginTransaction();
+		try {
+			SQL create = new SQL();
+			create.raw("CREATE VIRTUAL TABLE ");
+			create.escaped(fts);
+			create.raw(" USING fts4(");
+			create.escaped(column);
+			create.raw(")");
+			database.execSQL(create.toString());
+
+			SQL insert = new SQL();
+			insert.raw("INSERT INTO ");
+			insert.escaped(fts);
+			insert.raw(" (docid, ");
+			insert.escaped(column);
+			insert.raw(") VALUES (new._id, new.");
+			insert.escaped(column);
+			insert.raw(");");
+
+			SQL delete = new SQL();
+			delete.raw("DELETE FROM ");
+			delete.escaped(fts);
+			delete.raw(" WHERE docid = old._id;");
+
+			trigger(fts + "_insert", "AFTER INSERT ON", table, insert);
+			trigger(fts + "_update", "AFTER UPDATE OF "
+					+ new SQL().escaped(column) + " ON", table, delete, insert);
+			trigger(fts + "_delete", "AFTER DELETE ON", table, delete);
+
+			SQL populate = new SQL();
+			populate.raw("INSERT INTO ");
+			populate.escaped(fts);
+			populate.raw(" (docid, ");
+			populate.escaped(column);
+			populate.raw(") SELECT _id, ");
+			populate.escaped(column);
+			populate.raw(" FROM ");
+			populate.escaped(table);
+			populate.raw(" WHERE ");
+			populate.escaped(column);
+			populate.raw(" IS NOT NULL");
+			database.execSQL(populate.toString());
+
+			database.setTransactionSuccessful();
+		} finally {
+			database.endTransaction();
+		}
+	}
+
+	private void trigger(String name, String event, String table,
+			SQL... statements) {
+		SQL sql = new SQL();
+		sql.raw("CREATE TRIGGER ");
+		sql.escaped(name);
+		sql.raw(" ");
+		sql.raw(event);
+		sql.raw(" ");
+		sql.escaped(table);
+		sql.raw(" BEGIN ");
+		for (SQL statement : statements) {
+			sql.append(statement);
+			sql.raw(" ");
+		}
+		sql.raw("END");
+
+		repository.getDatabase().execSQL(sql.toString());
+	}
+
+	/**
+	 * Get the name of the shadow table for the given property.
+	 */
+	public static String table(Repository repository, Property<?> property) {
+		return repository.naming.table(repository,
+				property.propoid.getClass())
+				+ "_" + property.meta().name + "_fts";
+	}
+}
@@ -17,6 +17,7 @@ package propoid.db.operation;
 
 import android.database.sqlite.SQLiteStatement;
 
+import propoid.core.Dirty;
 import propoid.core.Property;
 import propoid.core.Propoid;
 import propoid.db.Repository;
@@ -39,6 +40,39 @@ public class Insert extends Operation {
 			throw new RepositoryException("cannot insert non transient propoid");
 		}
 
+		Statements.Key key = new Statements.Key(Insert.class,
+				propoid.getClass(), 0);
+
+		SQLiteStatement statement = repository.getStatements().acquire(key);
+		if (statement == null) {
+			statement = repository.getStatements().compile(
+					repository.getDatabase(), key, sql(propoid).toString());
+		}
+		try {
+			String type = repository.naming.encodeType(repository,
+					propoid.getClass());
+			if (type != null) {
+				statement.bindString(1, type);
+			}
+
+			int index = bind(statement, propoid, 2);
+
+			long start = System.nanoTime();
+
+			Row.setID(propoid, statement.executeInsert());
+
+			instrument("Insert", repository.getStatements().sql(key),
+					index - 1, -1, start);
+		} finally {
+			repository.getStatements().release(key, statement);
+		}
+
+		join(propoid, Row.getID(propoid), 0);
+
+		Dirty.clean(propoid);
+	}
+
+	private SQL sql(Propoid propoid) {
 		SQL sql = new SQL();
 		sql.raw("INSERT INTO ");
 		sql.escaped(repository.naming.table(repository, propoid.getClass()));
@@ -62,21 +96,7 @@ public class Insert extends Operation {
 
 		sql.raw(")");
 
-		SQLiteStatement statement = repository.getDatabase().compileStatement(
-				sql.toString());
-		try {
-			String type = repository.naming.encodeType(repository,
-					propoid.getClass());
-			if (type != null) {
-				statement.bindString(1, type);
-			}
-
-			bind(statement, propoid, 2);
-
-			Row.setID(propoid, statement.executeInsert());
-		} finally {
-			statement.close();
-		}
+		return sql;
 	}
 
 	@Override
@@ -26,6 +26,7 @@ import propoid.db.Reference;
 import propoid.db.References;
 import propoid.db.Repository;
 import propoid.db.SQL;
+import propoid.db.aspect.Row;
 import android.database.Cursor;
 
 /**
@@ -38,66 +39,120 @@ public class Lookup extends Operation {
 	}
 
 	public Propoid now(Reference<?> reference) {
+		Propoid cached = repository.caching.get(repository, reference);
+		if (cached != null) {
+			return cached;
+		}
+
 		final SQL sql = new SQL();
 
 		sql.raw("SELECT * FROM ");
 		sql.escaped(repository.naming.table(repository, reference.type));
 		sql.raw(" WHERE _id = ?");
 
-		Cursor cursor = repository.getDatabase().rawQuery(sql.toString(),
-				new String[] { Long.toString(reference.id) });
+		Arguments arguments = new Arguments();
+		arguments.add(reference.id);
+
+		long start = System.nanoTime();
+
+		Cursor cursor = query(sql.toString(), arguments);
 		try {
 			if (!cursor.moveToFirst()) {
 				throw new LookupException(reference);
 			}
 
-			return instantiate(reference.type, cursor);
+			long executed = System.nanoTime();
+
+			Propoid propoid = instantiate(reference.type, cursor);
+
+			instrument("Lookup", sql.toString(), 1, 1, start, executed);
+
+			repository.caching.put(repository, reference, propoid);
+
+			return propoid;
 		} finally {
 			cursor.close();
 		}
 	}
 
+	/**
+	 * Lookup all referenced propoids, in chunks of at most
+	 * {@link #MAX_ARGUMENTS} ids.
+	 *
+	 * @param references
+	 *            references
+	 * @return propoids in order of references, non-existing propoids are
+	 *         skipped
+	 */
 	public List<Propoid> now(References<Propoid> references) {
-		Map<Reference<Propoid>, Propoid> referenceToPropoid = new HashMap<Reference<Propoid>, Propoid>();
-
-		if (references.size() > 0) {
-			Class<? extends Propoid> type = references.iterator().next().type;
-
-			final SQL sql = new SQL();
-			String[] ids = new String[references.size()];
-
-			sql.raw("SELECT * FROM ");
-			sql.escaped(repository.naming.table(repository, type));
-			sql.raw(" WHERE _id in (");
-			int r = 0;
-			for (Reference<Propoid> reference : references) {
-				sql.separate(",");
-				sql.raw("?");
-				ids[r] = Long.toString(reference.id);
+		Map<Long, Propoid> idToPropoid = new HashMap<Long, Propoid>();
+
+		Class<? extends Propoid> type = null;
+		Arguments arguments = new Arguments();
+		for (Reference<Propoid> reference : references) {
+			type = reference.type;
+
+			Propoid cached = repository.caching.get(repository, reference);
+			if (cached != null) {
+				idToPropoid.put(reference.id, cached);
+				continue;
 			}
-			sql.raw(")");
-
-			Cursor cursor = repository.getDatabase().rawQuery(sql.toString(),
-					ids);
-			try {
-				while (cursor.moveToNext()) {
-					Propoid propoid = instantiate(type, cursor);
-
-					referenceToPropoid.put(new Reference<Propoid>(propoid),
-							propoid);
-				}
-			} finally {
-				cursor.close();
+
+			arguments.add(reference.id);
+			if (arguments.size() == MAX_ARGUMENTS) {
+				now(type, arguments, idToPropoid);
+
+				arguments = new Arguments();
 			}
 		}
+		if (arguments.size() > 0) {
+			now(type, arguments, idToPropoid);
+		}
 
 		List<Propoid> propoids = new ArrayList<Propoid>();
 		for (Reference<Propoid> reference : references) {
-			Propoid propoid = referenceToPropoid.get(reference);
+			Propoid propoid = idToPropoid.get(reference.id);
 			if (propoid != null) {
 				propoids.add(propoid);
 			}
 		}
 		return propoids;
 	}
+
+	private void now(Class<? extends Propoid> type, Arguments ids,
+			Map<Long, Propoid> idToPropoid) {
+		final SQL sql = new SQL();
+
+		sql.raw("SELECT * FROM ");
+		sql.escaped(repository.naming.table(repository, type));
+		sql.raw(" WHERE _id in (");
+		for (int a = 0; a < ids.size(); a++) {
+			sql.separate(",");
+			sql.raw("?");
+		}
+		sql.raw(")");
+
+		long start = System.nanoTime();
+
+		Cursor cursor = query(sql.toString(), ids);
+		try {
+			int rows = cursor.getCount();
+
+			long executed = System.nanoTime();
+
+			while (cursor.moveToNext()) {
+				Propoid propoid = instantiate(type, cursor);
+
+				long id = Row.getID(propoid);
+				idToPropoid.put(id, propoid);
+
+				repository.caching.put(repository, new Reference<Propoid>(type, id), propoid);
+			}
+
+			instrument("Lookup", sql.toString(), ids.size(), rows, start,
+					executed);
+		} finally {
+			cursor.close();
+		}
+	}
 }
\ No newline at end of file
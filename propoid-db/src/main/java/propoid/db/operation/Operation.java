@@ -20,12 +20,22 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import propoid.core.Dirty;
 import propoid.core.Property;
 import propoid.core.Propoid;
+import propoid.db.Instrumentation;
 import propoid.db.Repository;
 import propoid.db.aspect.Row;
+import propoid.db.mapping.JoinedPropoidsMapper;
 import propoid.db.mapping.Mapper;
+import propoid.db.operation.Plans.Plan;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteCursor;
+import android.database.sqlite.SQLiteCursorDriver;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDatabase.CursorFactory;
+import android.database.sqlite.SQLiteProgram;
+import android.database.sqlite.SQLiteQuery;
 import android.database.sqlite.SQLiteStatement;
 
 /**
@@ -33,22 +43,74 @@ import android.database.sqlite.SQLiteStatement;
  */
 public abstract class Operation {
 
+	/**
+	 * Maximum number of arguments of a single statement, see SQLite's
+	 * {@code SQLITE_MAX_VARIABLE_NUMBER}.
+	 */
+	public static final int MAX_ARGUMENTS = 999;
+
 	public final Repository repository;
 
+	/**
+	 * Are propoids retrieved from a partial select, i.e. properties without a
+	 * column are loaded lazily.
+	 */
+	protected boolean partial;
+
+	/**
+	 * The plan used last, saves the lookup for consecutive rows.
+	 */
+	private Plan plan;
+
 	protected Operation(Repository repository) {
 		this.repository = repository;
 	}
 
 	protected Propoid instantiate(Class<? extends Propoid> clazz, Cursor cursor) {
-		long id = cursor.getLong(cursor.getColumnIndex("_id"));
+		Plan plan = plan(clazz, cursor);
+
+		long id = cursor.getLong(plan.id);
 
-		String type = cursor.getString(cursor.getColumnIndex("_type"));
+		String type = (plan.type == -1) ? null : cursor.getString(plan.type);
 		clazz = repository.naming.decodeType(repository, clazz, type);
 
 		Propoid propoid = repository.factory.create(repository, clazz, id);
 		Row.setID(propoid, id);
 
-		retrieve(cursor, propoid);
+		plan(clazz, cursor).retrieve(repository, cursor, propoid);
+
+		Dirty.clean(propoid);
+
+		return propoid;
+	}
+
+	/**
+	 * Instantiate a {@link Propoid} from a cursor, reusing the instance of the
+	 * same class from a previous row.
+	 * 
+	 * @param reusables
+	 *            reusable propoids by class
+	 */
+	protected Propoid instantiate(Class<? extends Propoid> clazz,
+			Cursor cursor, Map<Class<? extends Propoid>, Propoid> reusables) {
+		Plan plan = plan(clazz, cursor);
+
+		long id = cursor.getLong(plan.id);
+
+		String type = (plan.type == -1) ? null : cursor.getString(plan.type);
+		clazz = repository.naming.decodeType(repository, clazz, type);
+
+		Propoid propoid = reusables.get(clazz);
+		if (propoid == null) {
+			propoid = repository.factory.create(repository, clazz, id);
+
+			reusables.put(clazz, propoid);
+		}
+		Row.reuse(propoid, id);
+
+		plan(clazz, cursor).retrieve(repository, cursor, propoid);
+
+		Dirty.clean(propoid);
 
 		return propoid;
 	}
@@ -56,29 +118,52 @@ public abstract class Operation {
 	/**
 	 * Retrieve a {@link Propoid} from a cursor.
 	 */
-	@SuppressWarnings("unchecked")
 	protected Propoid retrieve(Cursor cursor, Propoid propoid) {
-		for (Property<?> property : propoid.properties()) {
-			Mapper<Object> mapper = (Mapper<Object>) repository.mapping
-					.getMapper(repository, property);
+		plan(propoid.getClass(), cursor).retrieve(repository, cursor, propoid);
 
-			int index = cursor.getColumnIndex(property.meta().name);
-			if (index != -1) {
-				mapper.retrieve((Property<Object>) property, repository,
-						cursor, index);
-			}
-		}
+		Dirty.clean(propoid);
 
 		return propoid;
 	}
 
+	private Plan plan(Class<? extends Propoid> clazz, Cursor cursor) {
+		Plan plan = this.plan;
+
+		if (plan == null || plan.clazz != clazz || plan.lazy != partial
+				|| !plan.matches(cursor)) {
+			plan = repository.getPlans().get(clazz, cursor, partial);
+
+			this.plan = plan;
+		}
+
+		return plan;
+	}
+
 	/**
 	 * Bind a propoid to a statement.
 	 */
-	@SuppressWarnings("unchecked")
 	protected int bind(SQLiteStatement statement, Propoid propoid, int index) {
+		return bind(statement, propoid, 0, index);
+	}
 
+	/**
+	 * Bind a propoid to a statement, skipping properties.
+	 * 
+	 * @param skipped
+	 *            bitmask of properties to skip in order of
+	 *            {@link Propoid#properties()}
+	 * @see #skip(long, int)
+	 */
+	@SuppressWarnings("unchecked")
+	protected int bind(SQLiteStatement statement, Propoid propoid,
+			long skipped, int index) {
+
+		int p = 0;
 		for (Property<?> property : propoid.properties()) {
+			if (skip(skipped, p++)) {
+				continue;
+			}
+
 			Mapper<Object> mapper = (Mapper<Object>) repository.mapping.getMapper(repository, property);
 
 			beforeBind((Property<Propoid>) property, mapper);
@@ -92,6 +177,41 @@ public abstract class Operation {
 		return index;
 	}
 
+	/**
+	 * Write the join tables of a propoid, skipping properties.
+	 * 
+	 * @param id
+	 *            id of the propoid
+	 * @param skipped
+	 *            bitmask of properties to skip
+	 * @see JoinedPropoidsMapper
+	 */
+	protected void join(Propoid propoid, long id, long skipped) {
+		int p = 0;
+		for (Property<?> property : propoid.properties()) {
+			if (!skip(skipped, p++)) {
+				Mapper<?> mapper = repository.mapping.getMapper(repository,
+						property);
+				if (mapper instanceof JoinedPropoidsMapper) {
+					((JoinedPropoidsMapper) mapper).write(repository,
+							property, id);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Should the property at the given position be skipped.
+	 * 
+	 * @param skipped
+	 *            bitmask of properties to skip
+	 * @param p
+	 *            position of property
+	 */
+	protected static boolean skip(long skipped, int p) {
+		return p < 64 && (skipped & (1l << p)) != 0;
+	}
+
 	/**
 	 * A property will be bound.
 	 *
@@ -101,6 +221,47 @@ public abstract class Operation {
 	protected void beforeBind(Property<?> property, Mapper<?> mapper) {
 	}
 
+	/**
+	 * Report an execution of SQL without hydration to the repository's
+	 * {@link Instrumentation}.
+	 *
+	 * @param start
+	 *            {@link System#nanoTime()} before execution
+	 * @see #instrument(String, String, int, int, long, long)
+	 */
+	protected void instrument(String operation, String sql, int arguments,
+			int rows, long start) {
+		long executed = System.nanoTime();
+
+		repository.instrumentation.onExecuted(repository, operation, sql,
+				arguments, rows, executed - start, 0);
+	}
+
+	/**
+	 * Report an execution of SQL to the repository's {@link Instrumentation}.
+	 *
+	 * @param operation
+	 *            name of operation
+	 * @param sql
+	 *            executed SQL
+	 * @param arguments
+	 *            count of arguments
+	 * @param rows
+	 *            count of retrieved rows or {@code -1}
+	 * @param start
+	 *            {@link System#nanoTime()} before execution
+	 * @param executed
+	 *            {@link System#nanoTime()} after execution, i.e. before
+	 *            hydration
+	 */
+	protected void instrument(String operation, String sql, int arguments,
+			int rows, long start, long executed) {
+		long hydrated = System.nanoTime();
+
+		repository.instrumentation.onExecuted(repository, operation, sql,
+				arguments, rows, executed - start, hydrated - executed);
+	}
+
 	/**
 	 * Aliaser for {@link Propoid}s.
 	 */
@@ -129,19 +290,78 @@ public abstract class Operation {
 		}
 	}
 
+	/**
+	 * Query with typed arguments.
+	 *
+	 * @param sql
+	 *            query
+	 * @param arguments
+	 *            arguments to bind
+	 * @return cursor
+	 * @see Arguments#bind(SQLiteProgram)
+	 */
+	protected Cursor query(String sql, final Arguments arguments) {
+		return repository.getDatabase().rawQueryWithFactory(
+				new CursorFactory() {
+					@Override
+					public Cursor newCursor(SQLiteDatabase database,
+							SQLiteCursorDriver driver, String editTable,
+							SQLiteQuery query) {
+						arguments.bind(query);
+
+						return new SQLiteCursor(driver, editTable, query);
+					}
+				}, sql, null, null);
+	}
+
 	/**
 	 * Collector of arguments.
 	 */
 	public class Arguments {
 
-		private List<String> list = new ArrayList<String>();
-
-		public void add(String argument) {
+		private List<Object> list = new ArrayList<Object>();
+
+		/**
+		 * Add an argument.
+		 *
+		 * @param argument
+		 *            argument, either {@code null}, {@link String},
+		 *            {@link Long}, {@link Double} or {@code byte[]}
+		 * @see propoid.db.mapping.Mapper#argument(Property, Repository,
+		 *      Object)
+		 */
+		public void add(Object argument) {
 			list.add(argument);
 		}
 
-		public String[] get() {
-			return list.toArray(new String[list.size()]);
+		public int size() {
+			return list.size();
+		}
+
+		public Object[] get() {
+			return list.toArray(new Object[list.size()]);
+		}
+
+		/**
+		 * Bind all arguments with their native type.
+		 */
+		public void bind(SQLiteProgram program) {
+			for (int a = 0; a < list.size(); a++) {
+				Object argument = list.get(a);
+
+				int index = a + 1;
+				if (argument == null) {
+					program.bindNull(index);
+				} else if (argument instanceof Long) {
+					program.bindLong(index, (Long) argument);
+				} else if (argument instanceof Double) {
+					program.bindDouble(index, (Double) argument);
+				} else if (argument instanceof byte[]) {
+					program.bindBlob(index, (byte[]) argument);
+				} else {
+					program.bindString(index, argument.toString());
+				}
+			}
 		}
 
 		@Override
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.operation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import propoid.core.Property;
+import propoid.core.Propoid;
+import propoid.db.Repository;
+import propoid.db.aspect.LazyColumn;
+import propoid.db.mapping.Mapper;
+import android.database.Cursor;
+
+/**
+ * A cache of {@link Plan}s of a {@link Repository}, keyed by class and layout
+ * of columns.
+ */
+public class Plans {
+
+	/**
+	 * Maximum number of cached plans.
+	 */
+	public static final int CAPACITY = 64;
+
+	private final Map<Key, Plan> plans = new LinkedHashMap<Key, Plan>(16,
+			0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Plan> eldest) {
+			return size() > CAPACITY;
+		}
+	};
+
+	/**
+	 * Get the plan to retrieve propoids of the given class from the given
+	 * cursor.
+	 *
+	 * @param clazz
+	 *            class of propoids
+	 * @param cursor
+	 *            cursor to retrieve from
+	 * @param lazy
+	 *            should properties without a column be loaded lazily
+	 * @return plan
+	 */
+	public synchronized Plan get(Class<? extends Propoid> clazz,
+			Cursor cursor, boolean lazy) {
+		Key key = new Key(clazz, cursor.getColumnNames(), lazy);
+
+		Plan plan = plans.get(key);
+		if (plan == null) {
+			plan = new Plan(clazz, key.columns, lazy, cursor);
+
+			plans.put(key, plan);
+		}
+		return plan;
+	}
+
+	/**
+	 * Clear all cached plans.
+	 */
+	public synchronized void clear() {
+		plans.clear();
+	}
+
+	/**
+	 * A plan to retrieve {@link Propoid}s of a single class from a
+	 * {@link Cursor} with a specific layout of columns. Thus retrieval of a
+	 * row does not need any lookup of columns or {@link Mapper}s.
+	 */
+	public static final class Plan {
+
+		/**
+		 * The class of propoids.
+		 */
+		public final Class<? extends Propoid> clazz;
+
+		/**
+		 * Column index of the id.
+		 */
+		public final int id;
+
+		/**
+		 * Column index of the type or {@code -1}.
+		 */
+		public final int type;
+
+		/**
+		 * Are properties without a column loaded lazily, i.e. was only a part
+		 * of the columns selected.
+		 *
+		 * @see propoid.db.Match#select(Property...)
+		 */
+		public final boolean lazy;
+
+		private final String[] columns;
+
+		/**
+		 * Column index for each property in order of
+		 * {@link Propoid#properties()}, {@code -1} if not present.
+		 */
+		private volatile int[] indices;
+
+		private volatile Mapper<?>[] mappers;
+
+		/**
+		 * Are columns for some properties missing, i.e. not selected.
+		 */
+		private volatile boolean partial;
+
+		Plan(Class<? extends Propoid> clazz, String[] columns, boolean lazy,
+				Cursor cursor) {
+			this.clazz = clazz;
+			this.columns = columns;
+			this.lazy = lazy;
+
+			this.id = cursor.getColumnIndex("_id");
+			this.type = cursor.getColumnIndex("_type");
+		}
+
+		/**
+		 * Does this plan match the layout of columns of the given cursor.
+		 */
+		public boolean matches(Cursor cursor) {
+			return Arrays.equals(columns, cursor.getColumnNames());
+		}
+
+		/**
+		 * Retrieve a propoid from the current row of the given cursor.
+		 * <p>
+		 * Properties without a column are marked as not loaded if this plan is
+		 * {@link #lazy}, otherwise they are left untouched.
+		 *
+		 * @param repository
+		 *            repository
+		 * @param cursor
+		 *            cursor to retrieve from
+		 * @param propoid
+		 *            propoid of this plan's class
+		 */
+		@SuppressWarnings("unchecked")
+		public void retrieve(Repository repository, Cursor cursor,
+				Propoid propoid) {
+			if (mappers == null) {
+				compile(repository, propoid);
+			}
+
+			int[] indices = this.indices;
+			Mapper<?>[] mappers = this.mappers;
+
+			boolean partial = this.partial;
+
+			int p = 0;
+			for (Property<?> property : propoid.properties()) {
+				int index = indices[p];
+				if (index != -1) {
+					((Mapper<Object>) mappers[p]).retrieve(
+							(Property<Object>) property, repository, cursor,
+							index);
+
+					if (partial) {
+						LazyColumn.load(property);
+					}
+				} else if (lazy) {
+					LazyColumn.unload(property, repository);
+				}
+				p++;
+			}
+		}
+
+		private void compile(Repository repository, Propoid propoid) {
+			int count = 0;
+			for (Property<?> property : propoid.properties()) {
+				count++;
+			}
+
+			int[] indices = new int[count];
+			Mapper<?>[] mappers = new Mapper<?>[count];
+
+			boolean partial = false;
+
+			int p = 0;
+			for (Property<?> property : propoid.properties()) {
+				indices[p] = index(property.meta().name);
+				mappers[p] = repository.mapping.getMapper(repository,
+						property);
+				if (indices[p] == -1) {
+					partial = true;
+				}
+				p++;
+			}
+
+			this.indices = indices;
+			this.partial = partial;
+			this.mappers = mappers;
+		}
+
+		private int index(String name) {
+			for (int c = 0; c < columns.length; c++) {
+				if (columns[c].equalsIgnoreCase(name)) {
+					return c;
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Key of a plan.
+	 */
+	private static final class Key {
+
+		final Class<? extends Propoid> clazz;
+
+		final String[] columns;
+
+		final boolean lazy;
+
+		Key(Class<? extends Propoid> clazz, String[] columns, boolean lazy) {
+			this.clazz = clazz;
+			this.columns = columns;
+			this.lazy = lazy;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof Key) {
+				Key other = (Key) o;
+
+				return this.clazz == other.clazz && this.lazy == other.lazy
+						&& Arrays.equals(this.columns, other.columns);
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			int code = clazz.hashCode();
+			code = code * 31 + Arrays.hashCode(columns);
+			code = code * 31 + (lazy ? 1 : 0);
+			return code;
+		}
+	}
+}
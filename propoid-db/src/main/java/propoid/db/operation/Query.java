@@ -18,30 +18,50 @@ package propoid.db.operation;
 import android.database.Cursor;
 import android.net.Uri;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Set;
 
 import propoid.core.Property;
+import propoid.core.PropertyAspect;
 import propoid.core.Propoid;
 import propoid.db.Match;
 import propoid.db.Order;
+import propoid.db.QueryPlan;
 import propoid.db.Range;
 import propoid.db.References;
 import propoid.db.Repository;
+import propoid.db.Visitor;
 import propoid.db.RepositoryException;
 import propoid.db.SQL;
 import propoid.db.Where;
 import propoid.db.aspect.Row;
+import propoid.db.aspect.ToOneRelation;
+import propoid.db.mapping.JoinedPropoidsMapper;
+import propoid.db.mapping.Mapper;
 
 /**
  * Query {@link Propoid}s.
  */
 public class Query extends Operation {
 
+	/**
+	 * Count of rows to prefetch related propoids for.
+	 */
+	private static final int WINDOW = 100;
+
+	/**
+	 * Count of rows to stream at once for {@link Match#forEach(Visitor)}.
+	 */
+	private static final int BATCH = 500;
+
 	public Query(Repository repository) {
 		super(repository);
 	}
@@ -56,6 +76,13 @@ public class Query extends Operation {
 
 		private Where where;
 
+		private List<Property.Meta> prefetches = new ArrayList<Property.Meta>();
+
+		/**
+		 * Columns to select when listing.
+		 */
+		private String columns = "%1$s.*";
+
 		public MatchImpl(Propoid propoid, Where where) {
 			this.propoid = propoid;
 			this.where = where;
@@ -79,6 +106,11 @@ public class Query extends Operation {
 		}
 
 		private SQL where(Aliaser aliaser, Arguments arguments) {
+			return where(aliaser, arguments, Range.all());
+		}
+
+		private SQL where(Aliaser aliaser, Arguments arguments, Range range,
+				Order... ordering) {
 			SQL sql = new SQL();
 
 			sql.raw(" WHERE ");
@@ -92,16 +124,63 @@ public class Query extends Operation {
 
 			sql.append(where.toWhere(repository, propoid, arguments, aliaser));
 
+			SQL after = range.toWhere(repository, propoid, arguments, aliaser,
+					ordering);
+			if (after != null) {
+				sql.raw(" AND ");
+				sql.append(after);
+			}
+
 			return sql;
 		}
 
-		private SQL orderBy(Aliaser aliaser, Order... ordering) {
+		/**
+		 * Get the SQL to select the given columns.
+		 * <p>
+		 * All values are bound as arguments, so queries of the same shape
+		 * result in identical SQL, which SQLite's statement cache prepares
+		 * only once.
+		 *
+		 * @param columns
+		 *            columns to select, {@code %1$s} is replaced with the alias
+		 *            of the prototype
+		 * @param range
+		 *            range to select
+		 * @param arguments
+		 *            arguments to collect
+		 * @param ordering
+		 *            ordering
+		 * @return SQL
+		 */
+		private String select(String columns, Range range,
+				Arguments arguments, Order... ordering) {
+			Aliaser aliaser = new Aliaser();
+
+			SQL sql = new SQL();
+			sql.raw("SELECT ");
+			sql.raw(String.format(columns, aliaser.alias(propoid)));
+			sql.append(from(aliaser, arguments, ordering));
+			sql.append(where(aliaser, arguments, range, ordering));
+			sql.append(orderBy(aliaser, arguments, range, ordering));
+			sql.append(range.toLimit(repository, arguments));
+
+			return sql.toString();
+		}
+
+		private SQL orderBy(Aliaser aliaser, Arguments arguments, Range range,
+				Order... ordering) {
 			SQL sql = new SQL();
-			if (ordering.length > 0) {
+			if (ordering.length > 0 || range.after != null) {
 				sql.raw(" ORDER BY ");
 				for (Order order : ordering) {
 					sql.separate(", ");
-					sql.append(order.toOrderBy(aliaser));
+					sql.append(order.toOrderBy(repository, aliaser, arguments));
+				}
+				if (range.after != null) {
+					// continuation needs a total order
+					sql.separate(", ");
+					sql.raw(aliaser.alias(propoid));
+					sql.raw("._id asc");
 				}
 			}
 			return sql;
@@ -162,50 +241,51 @@ public class Query extends Operation {
 
 		@Override
 		public PropoidList list(Range range, Order... ordering) {
-			final SQL sql = new SQL();
 			final Arguments arguments = new Arguments();
-			final Aliaser aliaser = new Aliaser();
 
-			sql.raw("SELECT ");
-			sql.raw(aliaser.alias(propoid));
-			sql.raw(".*");
-			sql.append(from(aliaser, arguments, ordering));
-			sql.append(where(aliaser, arguments));
-			sql.append(orderBy(aliaser, ordering));
-			sql.append(range.toLimit(repository));
+			String sql = select(columns, range, arguments, ordering);
 
-			return new PropoidList(propoid.getClass(), repository.getDatabase()
-					.rawQuery(sql.toString(), arguments.get()));
+			repository.instrumentation.onQuery(repository, "Query.list", sql);
+
+			long start = System.nanoTime();
+
+			Cursor cursor = query(sql, arguments);
+
+			return new PropoidList(propoid.getClass(), cursor, prefetches, sql,
+					arguments.size(), System.nanoTime() - start);
 		}
 
 		@Override
 		public References<Propoid> references() {
-			final SQL sql = new SQL();
 			final Arguments arguments = new Arguments();
-			final Aliaser aliaser = new Aliaser();
 
-			sql.raw("SELECT ");
-			sql.raw(aliaser.alias(propoid));
-			sql.raw("._id, ");
-			sql.raw(aliaser.alias(propoid));
-			sql.raw("._type");
-			sql.append(from(aliaser, arguments));
-			sql.append(where(aliaser, arguments));
+			String sql = select("%1$s._id, %1$s._type", Range.all(), arguments);
+
+			repository.instrumentation.onQuery(repository, "Query.references", sql);
+
+			long start = System.nanoTime();
 
-			Cursor cursor = repository.getDatabase().rawQuery(sql.toString(), arguments.get());
+			Cursor cursor = query(sql, arguments);
 
 			Class<? extends Propoid> type = null;
-			long[] ids = new long[cursor.getCount()];
+			long[] ids;
 			try {
+				ids = new long[cursor.getCount()];
+
+				long executed = System.nanoTime();
+
 				while (cursor.moveToNext()) {
-					long id = cursor.getLong(cursor.getColumnIndex("_id"));
+					ids[cursor.getPosition()] = cursor.getLong(0);
 
 					if (type == null) {
-						String _type = cursor.getString(cursor.getColumnIndex("_type"));
+						String _type = cursor.getString(1);
 
-						 type = repository.naming.decodeType(repository, propoid.getClass(), _type);
+						type = repository.naming.decodeType(repository, propoid.getClass(), _type);
 					}
 				}
+
+				instrument("Query.references", sql, arguments.size(),
+						ids.length, start, executed);
 			} finally {
 				cursor.close();
 			}
@@ -217,21 +297,107 @@ public class Query extends Operation {
 			}
 		}
 
+		@Override
+		public long[] ids(Order... ordering) {
+			Cursor cursor = column("%1$s._id", ordering);
+			try {
+				long[] ids = new long[cursor.getCount()];
+				while (cursor.moveToNext()) {
+					ids[cursor.getPosition()] = cursor.getLong(0);
+				}
+				return ids;
+			} finally {
+				cursor.close();
+			}
+		}
+
+		@Override
+		public long[] longs(Property<?> property, Order... ordering) {
+			Cursor cursor = column(property, ordering);
+			try {
+				long[] longs = new long[cursor.getCount()];
+				while (cursor.moveToNext()) {
+					longs[cursor.getPosition()] = cursor.getLong(0);
+				}
+				return longs;
+			} finally {
+				cursor.close();
+			}
+		}
+
+		@Override
+		public double[] doubles(Property<?> property, Order... ordering) {
+			Cursor cursor = column(property, ordering);
+			try {
+				double[] doubles = new double[cursor.getCount()];
+				while (cursor.moveToNext()) {
+					doubles[cursor.getPosition()] = cursor.getDouble(0);
+				}
+				return doubles;
+			} finally {
+				cursor.close();
+			}
+		}
+
+		@Override
+		public String[] strings(Property<?> property, Order... ordering) {
+			Cursor cursor = column(property, ordering);
+			try {
+				String[] strings = new String[cursor.getCount()];
+				while (cursor.moveToNext()) {
+					strings[cursor.getPosition()] = cursor.getString(0);
+				}
+				return strings;
+			} finally {
+				cursor.close();
+			}
+		}
+
+		private Cursor column(Property<?> property, Order... ordering) {
+			if (!property.meta().owner.isAssignableFrom(propoid.getClass())) {
+				throw new RepositoryException("property of prototype required " + property);
+			}
+
+			SQL column = new SQL();
+			column.raw("%1$s.");
+			column.escaped(property.meta().name);
+
+			return column(column.toString(), ordering);
+		}
+
+		private Cursor column(String column, Order... ordering) {
+			final Arguments arguments = new Arguments();
+
+			String sql = select(column, Range.all(), arguments, ordering);
+
+			repository.instrumentation.onQuery(repository, "Query.column", sql);
+
+			long start = System.nanoTime();
+
+			Cursor cursor = query(sql, arguments);
+
+			instrument("Query.column", sql, arguments.size(),
+					cursor.getCount(), start);
+
+			return cursor;
+		}
+
 		@Override
 		public long count() {
-			final SQL sql = new SQL();
 			final Arguments arguments = new Arguments();
-			final Aliaser aliaser = new Aliaser();
 
-			sql.raw("SELECT COUNT(*)");
-			sql.append(from(aliaser, arguments));
-			sql.append(where(aliaser, arguments));
+			String sql = select("COUNT(*)", Range.all(), arguments);
+
+			repository.instrumentation.onQuery(repository, "Query.count", sql);
 
-			Cursor cursor = repository.getDatabase().rawQuery(sql.toString(),
-					arguments.get());
+			long start = System.nanoTime();
+
+			Cursor cursor = query(sql, arguments);
 			try {
 				cursor.moveToFirst();
 
+				instrument("Query.count", sql, arguments.size(), 1, start);
+
 				return cursor.getLong(0);
 			} finally {
 				cursor.close();
@@ -259,23 +425,26 @@ public class Query extends Operation {
 		}
 
 		private <T> T aggregate(String function, Property<T> property) {
-			final SQL sql = new SQL();
 			final Arguments arguments = new Arguments();
-			final Aliaser aliaser = new Aliaser();
 
-			sql.raw("SELECT ");
-			sql.raw(function);
-			sql.raw("(");
-			sql.escaped(property.meta().name);
-			sql.raw(")");
-			sql.append(from(aliaser, arguments));
-			sql.append(where(aliaser, arguments));
+			SQL columns = new SQL();
+			columns.raw(function);
+			columns.raw("(");
+			columns.escaped(property.meta().name);
+			columns.raw(")");
+
+			String sql = select(columns.toString(), Range.all(), arguments);
 
-			Cursor cursor = repository.getDatabase().rawQuery(sql.toString(),
-					arguments.get());
+			repository.instrumentation.onQuery(repository, "Query.aggregate", sql);
+
+			long start = System.nanoTime();
+
+			Cursor cursor = query(sql, arguments);
 			try {
 				cursor.moveToFirst();
 
+				instrument("Query.aggregate", sql, arguments.size(), 1, start);
+
 				repository.mapping.getMapper(repository, property).retrieve(
 						property, repository, cursor, 0);
 
@@ -286,6 +455,10 @@ public class Query extends Operation {
 		}
 
 		public <T> void set(Property<T> property, T value) {
+			if (repository.mapping.getMapper(repository, property) instanceof JoinedPropoidsMapper) {
+				throw new RepositoryException("cannot set joined property " + property);
+			}
+
 			final SQL sql = new SQL();
 			final Arguments arguments = new Arguments();
 			final Aliaser aliaser = new Aliaser();
@@ -308,7 +481,16 @@ public class Query extends Operation {
 			sql.append(where(aliaser, arguments));
 			sql.raw(")");
 
+			repository.instrumentation.onQuery(repository, "Query.set",
+					sql.toString());
+
+			long start = System.nanoTime();
+
 			repository.getDatabase().execSQL(sql.toString(), arguments.get());
+
+			instrument("Query.set", sql.toString(), arguments.size(), -1, start);
+
+			repository.invalidate(propoid.getClass());
 		}
 
 		@Override
@@ -325,7 +507,185 @@ public class Query extends Operation {
 			sql.append(where(aliaser, arguments));
 			sql.raw(")");
 
+			repository.instrumentation.onQuery(repository, "Query.delete",
+					sql.toString());
+
+			long start = System.nanoTime();
+
 			repository.getDatabase().execSQL(sql.toString(), arguments.get());
+
+			instrument("Query.delete", sql.toString(), arguments.size(), -1,
+					start);
+
+			for (Property<?> property : propoid.properties()) {
+				Mapper<?> mapper = repository.mapping.getMapper(repository, property);
+				if (mapper instanceof JoinedPropoidsMapper) {
+					((JoinedPropoidsMapper) mapper).deleteOrphans(repository, property);
+				}
+			}
+
+			repository.invalidate(propoid.getClass());
+		}
+
+		@Override
+		public Match<Propoid> prefetch(Property<? extends Propoid> property) {
+			if (!(property.meta().type instanceof Class)
+					|| !Propoid.class.isAssignableFrom((Class<?>) property
+							.meta().type)) {
+				throw new RepositoryException("cannot prefetch " + property);
+			}
+
+			prefetches.add(property.meta());
+
+			return this;
+		}
+
+		@Override
+		public Match<Propoid> select(Property<?>... properties) {
+			SQL columns = new SQL();
+			columns.raw("%1$s._id, %1$s._type");
+			for (Property<?> property : properties) {
+				if (!property.meta().owner.isAssignableFrom(propoid.getClass())) {
+					throw new RepositoryException("property of prototype required " + property);
+				}
+
+				columns.raw(", %1$s.");
+				columns.escaped(property.meta().name);
+			}
+
+			this.columns = columns.toString();
+			partial = true;
+
+			return this;
+		}
+
+		@Override
+		public Iterable<Propoid> stream(final int batchSize) {
+			if (batchSize < 1) {
+				throw new IllegalArgumentException("batch size must be positive");
+			}
+
+			return new Iterable<Propoid>() {
+				@Override
+				public Iterator<Propoid> iterator() {
+					return new StreamIterator(batchSize);
+				}
+			};
+		}
+
+		@Override
+		public void forEach(Visitor<Propoid> visitor) {
+			for (Propoid propoid : stream(BATCH)) {
+				visitor.visit(propoid);
+			}
+		}
+
+		@Override
+		public QueryPlan explain(Order... ordering) {
+			final Arguments arguments = new Arguments();
+
+			String sql = select(columns, Range.all(), arguments, ordering);
+
+			Cursor cursor = query("EXPLAIN QUERY PLAN " + sql, arguments);
+			try {
+				return new QueryPlan(sql, cursor);
+			} finally {
+				cursor.close();
+			}
+		}
+
+		@Override
+		public void scan(Visitor<Propoid> visitor) {
+			final Arguments arguments = new Arguments();
+
+			String sql = select(columns, Range.all(), arguments);
+
+			repository.instrumentation.onQuery(repository, "Query.scan", sql);
+
+			Map<Class<? extends Propoid>, Propoid> reusables = new HashMap<Class<? extends Propoid>, Propoid>();
+
+			long start = System.nanoTime();
+
+			Cursor cursor = query(sql, arguments);
+			try {
+				// rows are counted while visited, the cursor is stepped
+				// lazily
+				int rows = 0;
+				long sqlTime = System.nanoTime() - start;
+				while (true) {
+					long step = System.nanoTime();
+					boolean next = cursor.moveToNext();
+					sqlTime += System.nanoTime() - step;
+					if (!next) {
+						break;
+					}
+					rows++;
+
+					visitor.visit(instantiate(propoid.getClass(), cursor, reusables));
+				}
+
+				long end = System.nanoTime();
+				repository.instrumentation.onExecuted(repository,
+						"Query.scan", sql, arguments.size(), rows, sqlTime,
+						end - start - sqlTime);
+			} finally {
+				cursor.close();
+			}
+		}
+
+		class StreamIterator implements Iterator<Propoid> {
+
+			private final int batchSize;
+
+			private List<Propoid> chunk;
+
+			private int index;
+
+			public StreamIterator(int batchSize) {
+				this.batchSize = batchSize;
+			}
+
+			@Override
+			public boolean hasNext() {
+				if (chunk == null || (index == chunk.size() && chunk.size() == batchSize)) {
+					// all chunks in the same ordering, so continuation is well
+					// defined
+					Order[] ordering = new Order[] { Order.ascendingByInsert() };
+
+					Range range;
+					if (chunk == null) {
+						range = Range.limit(batchSize);
+					} else {
+						// continue after last by id
+						range = Range.afterLimit(chunk.get(chunk.size() - 1),
+								batchSize, ordering);
+					}
+
+					chunk = new ArrayList<Propoid>(batchSize);
+					index = 0;
+
+					// iterator closes the cursor
+					for (Propoid propoid : list(range, ordering)) {
+						chunk.add(propoid);
+					}
+				}
+
+				return index < chunk.size();
+			}
+
+			@Override
+			public Propoid next() {
+				if (!hasNext()) {
+					throw new RepositoryException("no next");
+				}
+
+				return chunk.get(index++);
+			}
+
+			@Override
+			public void remove() {
+				throw new RepositoryException("remove not supported");
+			}
 		}
 	}
 
@@ -335,15 +695,167 @@ public class Query extends Operation {
 
 		private Class<? extends Propoid> clazz;
 
-		public PropoidList(Class<? extends Propoid> clazz, Cursor cursor) {
+		private List<Property.Meta> prefetches;
+
+		/**
+		 * Propoids of the current window of rows, starting at {@link #start}.
+		 */
+		private Propoid[] window;
+
+		private int start;
+
+		private final String sql;
+
+		private final int arguments;
+
+		/**
+		 * Count of hydrated rows so far, reported on {@link #close()}.
+		 */
+		private int rows;
+
+		/**
+		 * Nanoseconds spent executing so far, reported on {@link #close()}.
+		 * The cursor steps through its rows lazily, thus execution continues
+		 * with moving the cursor.
+		 */
+		private long sqlTime;
+
+		/**
+		 * Nanoseconds spent hydrating so far, reported on {@link #close()}.
+		 */
+		private long hydrationTime;
+
+		public PropoidList(Class<? extends Propoid> clazz, Cursor cursor,
+				List<Property.Meta> prefetches, String sql, int arguments,
+				long sqlTime) {
 			this.clazz = clazz;
 			this.cursor = cursor;
+			this.prefetches = prefetches;
+			this.sql = sql;
+			this.arguments = arguments;
+			this.sqlTime = sqlTime;
+		}
+
+		private Propoid propoid(Cursor cursor) {
+			long start = System.nanoTime();
+			try {
+				return hydrate(cursor);
+			} finally {
+				hydrationTime += System.nanoTime() - start;
+				rows++;
+			}
+		}
+
+		private int count() {
+			long start = System.nanoTime();
+			try {
+				return cursor().getCount();
+			} finally {
+				sqlTime += System.nanoTime() - start;
+			}
+		}
+
+		private boolean move(int position) {
+			long start = System.nanoTime();
+			try {
+				return cursor().moveToPosition(position);
+			} finally {
+				sqlTime += System.nanoTime() - start;
+			}
+		}
+
+		private boolean moveToNext() {
+			long start = System.nanoTime();
+			try {
+				return cursor().moveToNext();
+			} finally {
+				sqlTime += System.nanoTime() - start;
+			}
+		}
+
+		/**
+		 * Get the propoid of the current row, prefetching for a window of rows
+		 * if required.
+		 */
+		private Propoid hydrate(Cursor cursor) {
+			if (prefetches.isEmpty()) {
+				return instantiate(clazz, cursor);
+			}
+
+			int position = cursor.getPosition();
+
+			Propoid propoid = null;
+			if (window != null && position >= start
+					&& position < start + window.length) {
+				propoid = window[position - start];
+			}
+
+			if (propoid == null) {
+				window = new Propoid[Math.min(WINDOW, cursor.getCount()
+						- position)];
+				start = position;
+				for (int w = 0; w < window.length; w++) {
+					cursor.moveToPosition(start + w);
+					window[w] = instantiate(clazz, cursor);
+				}
+				cursor.moveToPosition(position);
+
+				for (Property.Meta prefetch : prefetches) {
+					prefetch(prefetch, window);
+				}
+
+				propoid = window[0];
+			}
+
+			// hand out each instance only once
+			window[position - start] = null;
+
+			return propoid;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private void prefetch(Property.Meta meta, Propoid[] propoids) {
+			List<ToOneRelation> relations = new ArrayList<ToOneRelation>();
+			long[] ids = new long[propoids.length];
+			for (Propoid propoid : propoids) {
+				ToOneRelation relation = PropertyAspect.find(
+						meta.get(propoid), ToOneRelation.class);
+				if (relation != null && relation.loaded == false
+						&& relation.id != Row.TRANSIENT) {
+					ids[relations.size()] = relation.id;
+					relations.add(relation);
+				}
+			}
+
+			if (relations.isEmpty()) {
+				return;
+			}
+
+			Map<Long, Propoid> idToPropoid = new HashMap<Long, Propoid>();
+			for (Propoid related : new Lookup(repository)
+					.now(new References<Propoid>((Class) meta.type, Arrays
+							.copyOf(ids, relations.size())))) {
+				idToPropoid.put(Row.getID(related), related);
+			}
+
+			for (ToOneRelation relation : relations) {
+				Propoid related = idToPropoid.get(relation.id);
+				if (related != null) {
+					((Property<Propoid>) relation.property)
+							.setInternal(related);
+					relation.loaded = true;
+				}
+			}
 		}
 
 		private void close() {
 			if (cursor != null) {
 				cursor.close();
 				cursor = null;
+
+				repository.instrumentation.onExecuted(repository,
+						"Query.list", sql, arguments, rows, sqlTime,
+						hydrationTime);
 			}
 		}
 
@@ -356,7 +868,7 @@ public class Query extends Operation {
 
 		@Override
 		public Object[] toArray() {
-			return toArray(new Object[cursor().getCount()]);
+			return toArray(new Object[count()]);
 		}
 
 		@SuppressWarnings("unchecked")
@@ -364,13 +876,14 @@ public class Query extends Operation {
 			Cursor cursor = cursor();
 
 			try {
-				if (array.length < cursor.getCount()) {
-					array = (T[]) new Object[cursor.getCount()];
+				int count = count();
+				if (array.length < count) {
+					array = (T[]) new Object[count];
 				}
 
-				for (int p = 0; p < cursor.getCount(); p++) {
-					cursor.moveToPosition(p);
-					array[p] = (T) instantiate(clazz, cursor);
+				for (int p = 0; p < count; p++) {
+					move(p);
+					array[p] = (T) propoid(cursor);
 				}
 			} finally {
 				close();
@@ -386,21 +899,19 @@ public class Query extends Operation {
 
 		@Override
 		public boolean isEmpty() {
-			return cursor().getCount() == 0;
+			return count() == 0;
 		}
 
 		@Override
 		public int size() {
-			return cursor().getCount();
+			return count();
 		}
 
 		@Override
 		public Propoid get(int location) {
-			Cursor cursor = cursor();
-
-			cursor.moveToPosition(location);
+			move(location);
 
-			return instantiate(clazz, cursor);
+			return propoid(cursor());
 		}
 
 		@Override
@@ -496,7 +1007,7 @@ public class Query extends Operation {
 			@Override
 			public boolean hasNext() {
 				if (next == null) {
-					next = cursor().moveToNext();
+					next = moveToNext();
 
 					if (!next) {
 						close();
@@ -514,7 +1025,7 @@ public class Query extends Operation {
 				}
 
 				try {
-					Propoid propoid = instantiate(clazz, cursor());
+					Propoid propoid = propoid(cursor());
 
 					next = null;
 
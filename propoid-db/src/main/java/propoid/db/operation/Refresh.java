@@ -15,11 +15,14 @@
  */
 package propoid.db.operation;
 
+import propoid.core.Property;
 import propoid.core.Propoid;
 import propoid.db.Repository;
 import propoid.db.RepositoryException;
 import propoid.db.SQL;
+import propoid.db.aspect.LazyColumn;
 import propoid.db.aspect.Row;
+import propoid.db.mapping.Mapper;
 import android.database.Cursor;
 
 /**
@@ -43,14 +46,67 @@ public class Refresh extends Operation {
 		sql.escaped(repository.naming.table(repository, propoid.getClass()));
 		sql.raw(" WHERE _id = ?");
 
-		Cursor cursor = repository.getDatabase().rawQuery(sql.toString(),
-				new String[] { Long.toString(id) });
+		Arguments arguments = new Arguments();
+		arguments.add(id);
+
+		long start = System.nanoTime();
+
+		Cursor cursor = query(sql.toString(), arguments);
 		try {
 			if (!cursor.moveToFirst()) {
 				throw new RepositoryException("unkown propoid " + id);
 			}
 
+			long executed = System.nanoTime();
+
 			retrieve(cursor, propoid);
+
+			instrument("Refresh", sql.toString(), 1, 1, start, executed);
+		} finally {
+			cursor.close();
+		}
+
+		for (Property<?> property : propoid.properties()) {
+			LazyColumn.load(property);
+		}
+	}
+
+	/**
+	 * Refresh a single property only.
+	 */
+	@SuppressWarnings("unchecked")
+	public void now(Propoid propoid, Property<?> property) {
+		long id = Row.getID(propoid);
+		if (id == Row.TRANSIENT) {
+			throw new RepositoryException("cannot refesh transient propoid");
+		}
+
+		final SQL sql = new SQL();
+
+		sql.raw("SELECT ");
+		sql.escaped(property.meta().name);
+		sql.raw(" FROM ");
+		sql.escaped(repository.naming.table(repository, propoid.getClass()));
+		sql.raw(" WHERE _id = ?");
+
+		Arguments arguments = new Arguments();
+		arguments.add(id);
+
+		long start = System.nanoTime();
+
+		Cursor cursor = query(sql.toString(), arguments);
+		try {
+			if (!cursor.moveToFirst()) {
+				throw new RepositoryException("unkown propoid " + id);
+			}
+
+			long executed = System.nanoTime();
+
+			Mapper<Object> mapper = (Mapper<Object>) repository.mapping
+					.getMapper(repository, property);
+			mapper.retrieve((Property<Object>) property, repository, cursor, 0);
+
+			instrument("Refresh", sql.toString(), 1, 1, start, executed);
 		} finally {
 			cursor.close();
 		}
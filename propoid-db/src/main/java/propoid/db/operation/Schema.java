@@ -22,7 +22,9 @@ import propoid.core.Propoid;
 import propoid.db.Repository;
 import propoid.db.RepositoryException;
 import propoid.db.SQL;
+import propoid.db.mapping.JoinedPropoidsMapper;
 import propoid.db.mapping.Mapper;
+import propoid.db.naming.DefaultNaming;
 import propoid.db.schema.Column;
 import android.database.sqlite.SQLiteStatement;
 
@@ -47,6 +49,14 @@ public class Schema extends Operation {
 				alter(property, columns);
 			}
 		}
+
+		for (Property<?> property : propoid.properties()) {
+			Mapper<?> mapper = repository.mapping.getMapper(repository,
+					property);
+			if (mapper instanceof JoinedPropoidsMapper) {
+				((JoinedPropoidsMapper) mapper).schema(repository, property);
+			}
+		}
 	}
 
 	@SuppressWarnings("unchecked")
@@ -54,7 +64,8 @@ public class Schema extends Operation {
 		SQL sql = new SQL();
 		sql.raw("CREATE TABLE ");
 		sql.escaped(repository.naming.table(repository, propoid.getClass()));
-		sql.raw(" (_id INTEGER PRIMARY KEY, _type TEXT");
+		sql.raw(" (_id INTEGER PRIMARY KEY, _type ");
+		sql.raw(encodedType());
 
 		for (Property<?> property : propoid.properties()) {
 			Mapper<Object> mapper = (Mapper<Object>) repository.mapping
@@ -67,7 +78,22 @@ public class Schema extends Operation {
 		}
 		sql.raw(")");
 
+		long start = System.nanoTime();
+
 		repository.getDatabase().execSQL(sql.toString());
+
+		instrument("Schema", sql.toString(), 0, -1, start);
+	}
+
+	/**
+	 * Type indicators of a custom {@link propoid.db.Naming} are
+	 * {@link Column#TEXT}.
+	 */
+	private String encodedType() {
+		if (repository.naming instanceof DefaultNaming) {
+			return ((DefaultNaming) repository.naming).encodedType(repository);
+		}
+		return Column.TEXT;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -107,8 +133,12 @@ public class Schema extends Operation {
 		alter.raw(" ");
 		alter.raw(type);
 
+		long start = System.nanoTime();
+
 		repository.getDatabase().execSQL(alter.toString());
 
+		instrument("Schema", alter.toString(), 0, -1, start);
+
 		SQL update = new SQL();
 		update.raw("UPDATE ");
 		update.escaped(repository.naming.table(repository,
@@ -122,7 +152,11 @@ public class Schema extends Operation {
 		try {
 			mapper.bind((Property<Object>) property, repository, statement, 1);
 
+			start = System.nanoTime();
+
 			statement.execute();
+
+			instrument("Schema", update.toString(), 1, -1, start);
 		} finally {
 			statement.close();
 		}
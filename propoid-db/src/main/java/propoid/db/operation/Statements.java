@@ -0,0 +1,214 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.operation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import propoid.core.Propoid;
+import propoid.db.Repository;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * A cache of compiled {@link SQLiteStatement}s of a {@link Repository}.
+ * <p>
+ * A statement is taken out of the cache with {@link #acquire(Key)} and has to
+ * be given back with {@link #release(Key, SQLiteStatement)} after execution,
+ * thus a statement is never used by two operations at the same time (e.g. when
+ * cascading to a propoid of the same class or on concurrent access).
+ * <p>
+ * The least recently used keys are evicted, closing their idle statements.
+ */
+public class Statements {
+
+	/**
+	 * Maximum number of cached keys.
+	 */
+	public static final int CAPACITY = 64;
+
+	private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16,
+			0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			if (size() > CAPACITY) {
+				eldest.getValue().close();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * Acquire a cached statement.
+	 *
+	 * @param key
+	 *            key of statement
+	 * @return statement or {@code null} if none is cached
+	 */
+	public synchronized SQLiteStatement acquire(Key key) {
+		Entry entry = entries.get(key);
+		if (entry == null || entry.idle.isEmpty()) {
+			return null;
+		}
+
+		return entry.idle.remove(entry.idle.size() - 1);
+	}
+
+	/**
+	 * Compile a statement, remembering its SQL for the given key.
+	 *
+	 * @param database
+	 *            database to compile with
+	 * @param key
+	 *            key of statement
+	 * @param sql
+	 *            SQL of statement
+	 * @return compiled statement
+	 * @see #sql(Key)
+	 */
+	public SQLiteStatement compile(SQLiteDatabase database, Key key, String sql) {
+		synchronized (this) {
+			if (entries.get(key) == null) {
+				entries.put(key, new Entry(sql));
+			}
+		}
+
+		return database.compileStatement(sql);
+	}
+
+	/**
+	 * Get the SQL of a statement.
+	 *
+	 * @param key
+	 *            key of statement
+	 * @return SQL or {@code null} if not compiled or already evicted
+	 */
+	public synchronized String sql(Key key) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		return entry.sql;
+	}
+
+	/**
+	 * Release a statement to the cache, closing it if its key was evicted in
+	 * the meantime.
+	 *
+	 * @param key
+	 *            key of statement
+	 * @param statement
+	 *            statement to release
+	 */
+	public synchronized void release(Key key, SQLiteStatement statement) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			statement.close();
+			return;
+		}
+
+		statement.clearBindings();
+
+		entry.idle.add(statement);
+	}
+
+	/**
+	 * Close all cached statements.
+	 */
+	public synchronized void clear() {
+		for (Entry entry : entries.values()) {
+			entry.close();
+		}
+		entries.clear();
+	}
+
+	/**
+	 * The SQL and idle statements of a key.
+	 */
+	private static final class Entry {
+
+		final String sql;
+
+		final List<SQLiteStatement> idle = new ArrayList<SQLiteStatement>(1);
+
+		Entry(String sql) {
+			this.sql = sql;
+		}
+
+		void close() {
+			for (SQLiteStatement statement : idle) {
+				statement.close();
+			}
+			idle.clear();
+		}
+	}
+
+	/**
+	 * Key of a cached statement.
+	 */
+	public static final class Key {
+
+		private final Class<? extends Operation> operation;
+
+		private final Class<? extends Propoid> clazz;
+
+		private final long variant;
+
+		/**
+		 * @param operation
+		 *            the operation executing the statement
+		 * @param clazz
+		 *            concrete class of propoid
+		 * @param variant
+		 *            variant of statement for operation and class
+		 */
+		public Key(Class<? extends Operation> operation,
+				Class<? extends Propoid> clazz, long variant) {
+			this.operation = operation;
+			this.clazz = clazz;
+			this.variant = variant;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o instanceof Key) {
+				Key other = (Key) o;
+
+				return this.operation == other.operation
+						&& this.clazz == other.clazz
+						&& this.variant == other.variant;
+			}
+			return false;
+		}
+
+		@Override
+		public int hashCode() {
+			int code = operation.hashCode();
+			code = code * 31 + clazz.hashCode();
+			code = code * 31 + (int) (variant ^ (variant >>> 32));
+			return code;
+		}
+
+		@Override
+		public String toString() {
+			return operation.getSimpleName() + ":" + clazz.getName() + ":"
+					+ variant;
+		}
+	}
+}
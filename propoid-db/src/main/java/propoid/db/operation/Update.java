@@ -15,13 +15,18 @@
  */
 package propoid.db.operation;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import propoid.core.Aspect;
+import propoid.core.Dirty;
 import propoid.core.Property;
 import propoid.core.Propoid;
 import propoid.db.Repository;
 import propoid.db.RepositoryException;
 import propoid.db.SQL;
+import propoid.db.aspect.LazyColumn;
 import propoid.db.aspect.Row;
-import propoid.db.mapping.Mapper;
 
 import android.database.sqlite.SQLiteStatement;
 
@@ -34,49 +39,169 @@ public class Update extends Operation {
 		super(repository);
 	}
 
-	public void now(Propoid propoid) {
+	/**
+	 * Update the given propoid, writing its changed properties only.
+	 * 
+	 * @return {@code false} if nothing was changed
+	 * @see Dirty
+	 */
+	public boolean now(Propoid propoid) {
 		long id = Row.getID(propoid);
 		if (id == Row.TRANSIENT) {
 			throw new RepositoryException("cannot update transient propoid");
 		}
 
-		SQL sql = new SQL();
-
-		sql.raw("update ");
-		sql.escaped(repository.naming.table(repository, propoid.getClass()));
-		sql.raw(" set ");
+		if (!propoid.properties().iterator().hasNext()) {
+			// nothing to update
+			return false;
+		}
 
-		boolean hasProperty = false;
-		for (Property<?> property : propoid.properties()) {
-			sql.separate(", ");
-			sql.escaped(property.meta().name);
-			sql.raw(" = ?");
+		long skipped = skipped(propoid);
 
-			hasProperty = true;
-		}
+		cascade(propoid, skipped);
 
-		if (!hasProperty) {
-			// nothing to update
-			return;
+		skipped |= clean(propoid, skipped);
+		if (skipped != 0) {
+			int count = count(propoid);
+			if (count <= 64 && skipped == -1l >>> (64 - count)) {
+				// nothing loaded or changed
+				return false;
+			}
 		}
 
-		sql.raw("where _id = ?");
+		Statements.Key key = new Statements.Key(Update.class,
+				propoid.getClass(), skipped);
 
-		SQLiteStatement statement = repository.getDatabase().compileStatement(
-				sql.toString());
+		SQLiteStatement statement = repository.getStatements().acquire(key);
+		if (statement == null) {
+			statement = repository.getStatements().compile(
+					repository.getDatabase(), key,
+					sql(propoid, skipped).toString());
+		}
 		try {
-			int index = bind(statement, propoid, 1);
+			int index = bind(statement, propoid, skipped, 1);
 
 			statement.bindLong(index, id);
 
+			long start = System.nanoTime();
+
 			statement.execute();
+
+			instrument("Update", repository.getStatements().sql(key), index,
+					-1, start);
 		} finally {
-			statement.close();
+			repository.getStatements().release(key, statement);
+		}
+
+		join(propoid, id, skipped);
+
+		Dirty.clean(propoid);
+
+		repository.invalidate(propoid);
+
+		return true;
+	}
+
+	/**
+	 * Cascade all loaded properties - these might be unchanged while the
+	 * related propoids are not.
+	 */
+	private void cascade(Propoid propoid, long skipped) {
+		int p = 0;
+		for (Property<?> property : propoid.properties()) {
+			if (!skip(skipped, p++)) {
+				repository.cascading.onUpdate(repository, property,
+						repository.mapping.getMapper(repository, property));
+			}
 		}
 	}
 
-	@Override
-	protected void beforeBind(Property<?> property, Mapper<?> mapper) {
-		repository.cascading.onUpdate(repository, property, mapper);
+	/**
+	 * Get the properties which are not changed.
+	 * 
+	 * @return bitmask of properties in order of {@link Propoid#properties()}
+	 * @see Dirty
+	 */
+	private long clean(Propoid propoid, long skipped) {
+		Dirty dirty = Dirty.get(propoid);
+		if (dirty == null) {
+			// not tracked
+			return 0;
+		}
+
+		long clean = 0;
+		int p = 0;
+		for (Property<?> property : propoid.properties()) {
+			if (p < 64 && !skip(skipped, p) && !dirty.isDirty(property)) {
+				clean |= 1l << p;
+			}
+			p++;
+		}
+		return clean;
+	}
+
+	/**
+	 * Get the properties to skip, i.e. which are not loaded.
+	 * 
+	 * @return bitmask of properties in order of {@link Propoid#properties()}
+	 * @see LazyColumn
+	 */
+	private long skipped(Propoid propoid) {
+		List<Property<?>> unloaded = null;
+		for (Aspect aspect : propoid.aspects()) {
+			if (aspect instanceof LazyColumn
+					&& ((LazyColumn<?>) aspect).loaded == false) {
+				if (unloaded == null) {
+					unloaded = new ArrayList<Property<?>>();
+				}
+				unloaded.add(((LazyColumn<?>) aspect).property);
+			}
+		}
+
+		long skipped = 0;
+		if (unloaded != null) {
+			int p = 0;
+			for (Property<?> property : propoid.properties()) {
+				if (unloaded.contains(property)) {
+					if (p < 64) {
+						skipped |= 1l << p;
+					} else {
+						// cannot be skipped, so load it
+						property.get();
+					}
+				}
+				p++;
+			}
+		}
+		return skipped;
+	}
+
+	private int count(Propoid propoid) {
+		int count = 0;
+		for (Property<?> property : propoid.properties()) {
+			count++;
+		}
+		return count;
+	}
+
+	private SQL sql(Propoid propoid, long skipped) {
+		SQL sql = new SQL();
+
+		sql.raw("update ");
+		sql.escaped(repository.naming.table(repository, propoid.getClass()));
+		sql.raw(" set ");
+
+		int p = 0;
+		for (Property<?> property : propoid.properties()) {
+			if (!skip(skipped, p++)) {
+				sql.separate(", ");
+				sql.escaped(property.meta().name);
+				sql.raw(" = ?");
+			}
+		}
+
+		sql.raw(" where _id = ?");
+
+		return sql;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2011 Sven Meier
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package propoid.db.version.alter;
+
+import propoid.db.schema.Column;
+
+public class RetypeColumn extends AlterColumn {
+
+	public final String name;
+
+	public final String type;
+
+	public RetypeColumn(String name, String type) {
+		this.name = name;
+		this.type = type;
+	}
+
+	@Override
+	public String toString() {
+		return "retype column '" + name + "'";
+	}
+
+	@Override
+	public boolean alters(Column column) {
+		return column.name.equals(this.name);
+	}
+
+	@Override
+	public Column alter(Column column) {
+		return new Column(column.name, type, column.notNull,
+				column.dfltValue, column.pk);
+	}
+}
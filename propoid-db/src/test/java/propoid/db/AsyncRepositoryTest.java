@@ -0,0 +1,190 @@
+package propoid.db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import propoid.db.locator.InMemoryLocator;
+import propoid.db.aspect.Row;
+import propoid.db.cascading.DefaultCascading;
+import propoid.db.operation.Bar;
+import propoid.db.operation.Foo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = propoid.db.BuildConfig.class)
+public class AsyncRepositoryTest {
+
+	private Repository repository;
+
+	private AsyncRepository async;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new Repository(RuntimeEnvironment.application, new InMemoryLocator());
+
+		async = new AsyncRepository(repository);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		async.close();
+
+		repository.close();
+	}
+
+	@Test
+	public void testWriteRead() throws Exception {
+		Foo foo = new Foo();
+		async.insert(foo, null).get();
+
+		assertEquals(1l, (long) async.count(repository.query(new Foo()), null).get());
+
+		List<Foo> foos = async.list(repository.query(new Foo()), Range.all(), null).get();
+		assertEquals(1, foos.size());
+
+		Foo lookedUp = async.lookup(new Reference<>(foo), null).get();
+		assertEquals(foo.intP.get(), lookedUp.intP.get());
+
+		async.delete(lookedUp, null).get();
+		try {
+			async.lookup(new Reference<>(foo), null).get();
+			fail();
+		} catch (ExecutionException expected) {
+			assertTrue(expected.getCause() instanceof LookupException);
+		}
+	}
+
+	@Test
+	public void testCoalesceAndCancel() throws Exception {
+		Foo foo = new Foo();
+		repository.insert(foo);
+
+		final CountDownLatch blocking = new CountDownLatch(1);
+		async.write(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				blocking.await();
+				return null;
+			}
+		}, null);
+
+		foo.intP.set(1);
+		Future<Void> update = async.update(foo, null);
+		assertSame(update, async.update(foo, null));
+		assertNotSame(update, async.merge(foo, null));
+		// not adjacent
+		assertNotSame(update, async.update(foo, null));
+
+		Future<Void> delete = async.delete(foo, null);
+		assertTrue(delete.cancel(false));
+		assertNotSame(delete, async.delete(foo, null));
+		assertTrue(async.delete(foo, null).cancel(false));
+
+		blocking.countDown();
+		update.get();
+
+		assertEquals(Integer.valueOf(1), async.lookup(new Reference<>(foo), null).get().intP.get());
+	}
+
+	@Test
+	public void testGroupCommit() throws Exception {
+		async.setGroupCommit(60000, 3);
+
+		Future<Void> insert1 = async.insert(new Foo(), null);
+		Future<Void> insert2 = async.insert(new Foo(), null);
+		assertFalse(insert1.isDone());
+
+		// reaches size
+		Future<Void> insert3 = async.insert(new Foo(), null);
+		insert1.get();
+		insert2.get();
+		insert3.get();
+		assertEquals(3, repository.query(new Foo()).count());
+
+		Future<Void> insert4 = async.insert(new Foo(), null);
+		Future<Void> transient4 = async.update(new Foo(), null);
+		async.flush();
+
+		insert4.get();
+		try {
+			transient4.get();
+			fail();
+		} catch (ExecutionException expected) {
+			assertTrue(expected.getCause() instanceof RepositoryException);
+		}
+		assertEquals(4, repository.query(new Foo()).count());
+	}
+
+	@Test
+	public void testGroupCommitRetry() throws Exception {
+		async.setGroupCommit(60000, 10);
+
+		Foo existing = new Foo();
+		repository.insert(existing);
+
+		Foo inserted = new Foo();
+		inserted.intP.set(1);
+		existing.intP.set(2);
+
+		Future<Void> insert = async.insert(inserted, null);
+		Future<Void> merge = async.merge(existing, null);
+		Future<Void> failing = async.update(new Foo(), null);
+		async.flush();
+
+		insert.get();
+		merge.get();
+		try {
+			failing.get();
+			fail();
+		} catch (ExecutionException expected) {
+		}
+
+		assertEquals(2, repository.query(new Foo()).count());
+		assertEquals(Integer.valueOf(1), repository.lookup(new Reference<>(inserted)).intP.get());
+		assertEquals(Integer.valueOf(2), repository.lookup(new Reference<>(existing)).intP.get());
+	}
+
+	@Test
+	public void testGroupCommitRetryCascaded() throws Exception {
+		((DefaultCascading) repository.cascading).setCascaded(new Foo().barP);
+
+		async.setGroupCommit(60000, 10);
+
+		Foo existing = new Foo();
+		repository.insert(existing);
+
+		Bar bar = new Bar();
+		existing.barP.set(bar);
+
+		Future<Void> merge = async.merge(existing, null);
+		Future<Void> failing = async.update(new Foo(), null);
+		async.flush();
+
+		merge.get();
+		try {
+			failing.get();
+			fail();
+		} catch (ExecutionException expected) {
+		}
+
+		assertEquals(1, repository.query(new Bar()).count());
+		assertEquals(Row.getID(bar), Row.getID(repository.lookup(new Reference<>(existing)).barP.get()));
+	}
+}
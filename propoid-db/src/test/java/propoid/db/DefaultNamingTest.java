@@ -33,6 +33,7 @@ public class DefaultNamingTest {
 				naming.encodeType(repository, FooEx.class));
 
 		assertEquals(Foo.class, naming.decodeType(repository, Foo.class, null));
+		assertEquals(FooEx.class, naming.decodeType(repository, FooEx.class, null));
 		assertEquals(FooEx.class,
 				naming.decodeType(repository, Foo.class, "FooEx"));
 		assertEquals(FooEx.class,
@@ -42,4 +43,34 @@ public class DefaultNamingTest {
 		assertEquals(FooEx.class, naming.decodeType(repository,
 				FooEx.class, "propoid.db.operation.FooEx"));
 	}
+
+	@Test
+	public void testCached() throws Exception {
+		Repository repository = null;
+
+		final int[] decoded = new int[1];
+		DefaultNaming naming = new DefaultNaming() {
+			@Override
+			protected Class<? extends Propoid> decodeTypeImpl(
+					Repository repository, Class<? extends Propoid> clazz,
+					String type) {
+				decoded[0]++;
+				return super.decodeTypeImpl(repository, clazz, type);
+			}
+		};
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(Foo.class, naming.decodeType(repository, Foo.class, null));
+		}
+		assertEquals(1, decoded[0]);
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(FooEx.class,
+					naming.decodeType(repository, Foo.class, "FooEx"));
+		}
+		assertEquals(2, decoded[0]);
+
+		assertEquals(FooEx.class, naming.decodeType(repository, FooEx.class, null));
+		assertEquals(3, decoded[0]);
+	}
 }
\ No newline at end of file
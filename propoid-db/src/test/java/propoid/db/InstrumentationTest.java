@@ -0,0 +1,102 @@
+package propoid.db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import propoid.db.instrumentation.Histogram;
+import propoid.db.instrumentation.SlowQueryLog;
+import propoid.db.locator.InMemoryLocator;
+import propoid.db.operation.Foo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = propoid.db.BuildConfig.class)
+public class InstrumentationTest {
+
+	private List<String> logged = new ArrayList<>();
+
+	private SlowQueryLog log;
+
+	private Histogram histogram;
+
+	private Repository repository;
+
+	@Before
+	public void setUp() throws Exception {
+		histogram = new Histogram();
+
+		log = new SlowQueryLog(0, histogram) {
+			@Override
+			protected void log(String message) {
+				logged.add(message);
+			}
+		};
+
+		repository = new Repository(RuntimeEnvironment.application, new InMemoryLocator(), log);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		repository.close();
+	}
+
+	@Test
+	public void testHistogram() throws Exception {
+		Foo foo = new Foo();
+		repository.insert(foo);
+		repository.insert(new Foo());
+
+		foo.stringP.set("A");
+		repository.update(foo);
+
+		assertEquals(2, repository.query(new Foo()).list().toArray().length);
+		assertEquals(2, repository.query(new Foo()).count());
+
+		repository.lookup(new Reference<>(foo));
+
+		repository.delete(foo);
+
+		assertNotNull(histogram.getEntry("Schema"));
+		assertEquals(2, histogram.getEntry("Insert").getCount());
+		assertEquals(1, histogram.getEntry("Update").getCount());
+		assertEquals(1, histogram.getEntry("Query.count").getCount());
+		assertEquals(1, histogram.getEntry("Lookup").getCount());
+		assertEquals(1, histogram.getEntry("Delete").getCount());
+
+		Histogram.Entry list = histogram.getEntry("Query.list");
+		assertEquals(1, list.getCount());
+		assertEquals(2, list.getRows());
+		assertTrue(list.getPercentile(0.5) <= list.getMaxTime());
+		assertTrue(list.getPercentile(1.0) <= list.getMaxTime());
+
+		histogram.reset();
+		assertNull(histogram.getEntry("Insert"));
+	}
+
+	@Test
+	public void testSlowQueryLog() throws Exception {
+		repository.insert(new Foo());
+		assertTrue(logged.get(logged.size() - 1).startsWith("slow Insert"));
+		assertTrue(logged.get(logged.size() - 1).contains("INSERT INTO"));
+
+		logged.clear();
+
+		log.setThreshold(60000);
+
+		repository.insert(new Foo());
+		assertEquals(0, logged.size());
+		assertEquals(2, histogram.getEntry("Insert").getCount());
+	}
+}
@@ -0,0 +1,100 @@
+package propoid.db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import android.database.Cursor;
+
+import propoid.db.locator.InMemoryLocator;
+import propoid.db.naming.IntegerNaming;
+import propoid.db.operation.Foo;
+import propoid.db.operation.FooEx;
+import propoid.db.schema.Column;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = propoid.db.BuildConfig.class)
+public class IntegerNamingTest {
+
+	private Repository repository;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new Repository(RuntimeEnvironment.application, new InMemoryLocator());
+
+		repository.insert(new Foo());
+		repository.insert(new FooEx());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		repository.close();
+	}
+
+	@Test
+	public void testUpgrade() throws Exception {
+		Foo foo = new Foo();
+		repository.index(foo, false, Order.ascending(foo.intP));
+		int indices = indices("Foo");
+		assertTrue(indices > 0);
+
+		new IntegerNaming.UpgradeTypes("Foo", Foo.class).apply(repository.getDatabase());
+
+		Repository integer = repository.derive(new IntegerNaming());
+
+		assertEquals(2, integer.query(new Foo()).count());
+		assertEquals(1, integer.query(new FooEx()).count());
+
+		integer.insert(new FooEx());
+
+		assertEquals(2, integer.query(new FooEx()).count());
+		assertEquals(FooEx.class, integer.query(new FooEx()).first().getClass());
+
+		// table is not rebuilt
+		for (Column column : Column.get("Foo", repository.getDatabase())) {
+			if (column.name.equals("_type")) {
+				assertEquals(Column.TEXT, column.type);
+			}
+		}
+		assertEquals(indices, indices("Foo"));
+	}
+
+	@Test
+	public void testRegister() throws Exception {
+		new IntegerNaming.UpgradeTypes("Foo", Foo.class).apply(repository.getDatabase());
+
+		repository.derive(new IntegerNaming()).insert(new FooEx());
+		repository.derive(new IntegerNaming()).insert(new FooEx());
+
+		Cursor cursor = repository.getDatabase().rawQuery(
+				"SELECT count(*) FROM " + IntegerNaming.REGISTRY + " WHERE name = ?",
+				new String[] { FooEx.class.getName() });
+		try {
+			cursor.moveToFirst();
+			assertEquals(1, cursor.getInt(0));
+		} finally {
+			cursor.close();
+		}
+
+		assertEquals(3, repository.derive(new IntegerNaming()).query(new FooEx()).count());
+	}
+
+	private int indices(String table) {
+		Cursor cursor = repository.getDatabase().rawQuery(
+				"SELECT count(*) FROM sqlite_master WHERE type = 'index' AND tbl_name = ?",
+				new String[] { table });
+		try {
+			cursor.moveToFirst();
+			return cursor.getInt(0);
+		} finally {
+			cursor.close();
+		}
+	}
+}
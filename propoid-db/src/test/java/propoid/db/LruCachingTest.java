@@ -0,0 +1,142 @@
+package propoid.db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import propoid.db.caching.LruCaching;
+import propoid.db.locator.InMemoryLocator;
+import propoid.db.operation.Foo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = propoid.db.BuildConfig.class)
+public class LruCachingTest {
+
+	private LruCaching caching;
+
+	private Repository repository;
+
+	@Before
+	public void setUp() throws Exception {
+		caching = new LruCaching(2);
+
+		repository = new Repository(RuntimeEnvironment.application, new InMemoryLocator(), caching);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		repository.close();
+	}
+
+	@Test
+	public void testLookup() throws Exception {
+		Foo foo = new Foo();
+		repository.insert(foo);
+
+		Reference<Foo> reference = new Reference<>(foo);
+
+		Foo cached = repository.lookup(reference);
+		assertSame(cached, repository.lookup(reference));
+		assertEquals(1, caching.getHits());
+		assertEquals(1, caching.getMisses());
+
+		cached.intP.set(1);
+		repository.update(cached);
+
+		Foo updated = repository.lookup(reference);
+		assertNotSame(cached, updated);
+		assertEquals(Integer.valueOf(1), updated.intP.get());
+
+		repository.query(new Foo()).set(foo.intP, 2);
+		assertEquals(Integer.valueOf(2), repository.lookup(reference).intP.get());
+
+		repository.delete(foo);
+		try {
+			repository.lookup(reference);
+
+			fail();
+		} catch (LookupException expected) {
+		}
+	}
+
+	@Test
+	public void testStale() throws Exception {
+		Foo foo = new Foo();
+		repository.insert(foo);
+
+		Reference<Foo> reference = new Reference<>(foo);
+		Foo stale = repository.lookup(reference);
+		caching.invalidate(repository, stale);
+
+		// lookup misses and reads the row ...
+		assertNull(caching.get(repository, reference));
+
+		// ... while another thread updates it
+		foo.intP.set(1);
+		repository.update(foo);
+
+		caching.put(repository, reference, stale);
+		assertNotSame(stale, repository.lookup(reference));
+		assertEquals(Integer.valueOf(1), repository.lookup(reference).intP.get());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			Foo foo = new Foo();
+			repository.insert(foo);
+
+			repository.lookup(new Reference<>(foo));
+		}
+
+		assertEquals(1, caching.getEvictions());
+	}
+
+	@Test
+	public void testTransaction() throws Exception {
+		Foo foo = new Foo();
+		repository.insert(foo);
+
+		final Reference<Foo> reference = new Reference<>(foo);
+		final Foo cached = repository.lookup(reference);
+
+		repository.transactional(new Transaction() {
+			@Override
+			public void doTransactional() {
+				cached.intP.set(1);
+				repository.update(cached);
+
+				// deferred until the transaction has ended
+				assertSame(cached, repository.lookup(reference));
+			}
+		});
+		assertNotSame(cached, repository.lookup(reference));
+
+		final Foo rolledBack = repository.lookup(reference);
+		try {
+			repository.transactional(new Transaction() {
+				@Override
+				public void doTransactional() {
+					rolledBack.intP.set(2);
+					repository.update(rolledBack);
+
+					throw new IllegalStateException();
+				}
+			});
+
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+		assertEquals(Integer.valueOf(1), repository.lookup(reference).intP.get());
+	}
+}
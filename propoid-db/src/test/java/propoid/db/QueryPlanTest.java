@@ -0,0 +1,103 @@
+package propoid.db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import propoid.db.instrumentation.ScanDetector;
+import propoid.db.locator.InMemoryLocator;
+import propoid.db.operation.Foo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = propoid.db.BuildConfig.class)
+public class QueryPlanTest {
+
+	private List<String> logged = new ArrayList<>();
+
+	private ScanDetector detector;
+
+	private Repository repository;
+
+	@Before
+	public void setUp() throws Exception {
+		detector = new ScanDetector(1) {
+			@Override
+			protected void log(String message) {
+				logged.add(message);
+			}
+		};
+
+		repository = new Repository(RuntimeEnvironment.application, new InMemoryLocator(), detector);
+
+		repository.insert(new Foo());
+		repository.insert(new Foo());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		repository.close();
+	}
+
+	@Test
+	public void testExplain() throws Exception {
+		Foo foo = new Foo();
+		String table = repository.naming.table(repository, Foo.class);
+
+		QueryPlan plan = repository.query(foo, Where.equal(foo.intP, 1)).explain();
+		assertEquals(1, plan.getFullScans().size());
+		assertEquals(table, plan.getFullScans().get(0).getTable());
+
+		repository.index(foo, false, Order.ascending(foo.intP));
+
+		plan = repository.query(foo, Where.equal(foo.intP, 1)).explain();
+		assertEquals(0, plan.getFullScans().size());
+		assertEquals(table, plan.steps.get(0).getTable());
+
+		plan = repository.query(foo, Where.any(Where.equal(foo.intP, 1))).explain(Order.descending(foo.intP));
+		assertFalse(plan.steps.isEmpty());
+	}
+
+	@Test
+	public void testDetect() throws Exception {
+		Foo foo = new Foo();
+
+		repository.query(foo, Where.equal(foo.longP, 1l)).count();
+		assertEquals(1, logged.size());
+		assertTrue(logged.get(0).startsWith("full scan"));
+
+		// explained once only
+		repository.query(foo, Where.equal(foo.longP, 1l)).count();
+		assertEquals(1, logged.size());
+
+		detector.setThrowing(true);
+		try {
+			repository.query(foo, Where.equal(foo.doubleP, 1d)).list();
+
+			fail();
+		} catch (RepositoryException expected) {
+		}
+
+		// detected again
+		try {
+			repository.query(foo, Where.equal(foo.doubleP, 1d)).list();
+
+			fail();
+		} catch (RepositoryException expected) {
+		}
+
+		detector.setThreshold(2);
+		repository.query(foo, Where.equal(foo.floatP, 1f)).count();
+	}
+}
@@ -0,0 +1,117 @@
+package propoid.db.mapping;
+
+import android.database.Cursor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import propoid.db.BuildConfig;
+import propoid.db.Reference;
+import propoid.db.Repository;
+import propoid.db.aspect.Row;
+import propoid.db.locator.InMemoryLocator;
+import propoid.db.operation.Bar;
+import propoid.db.operation.Foo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test for {@link BinaryPropoidsMapper}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class BinaryPropoidsMapperTest {
+
+	private Repository repository;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new Repository(RuntimeEnvironment.application, new InMemoryLocator());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		repository.close();
+	}
+
+	@Test
+	public void testEncoding() throws Exception {
+		long[][] samples = new long[][] { {}, { 0 }, { 1, 2, 3 }, { 100000, 99000, Row.TRANSIENT, 100001 },
+				{ Long.MAX_VALUE, Long.MIN_VALUE, 0 } };
+
+		for (long[] ids : samples) {
+			assertArrayEquals(ids, BinaryPropoidsMapper.decode(BinaryPropoidsMapper.encode(ids)));
+		}
+
+		assertEquals(3, BinaryPropoidsMapper.encode(new long[] { 1, 2, 3 }).length);
+	}
+
+	@Test
+	public void testMigrate() throws Exception {
+		Bar bar1 = new Bar();
+		repository.insert(bar1);
+		Bar bar2 = new Bar();
+		repository.insert(bar2);
+
+		// stored as text
+		Foo foo1 = new Foo();
+		foo1.barsP.set(Arrays.asList(bar1, bar2));
+		repository.insert(foo1);
+		Foo foo2 = new Foo();
+		foo2.barsP.set(Arrays.asList(bar2));
+		repository.insert(foo2);
+
+		DefaultMapping mapping = new DefaultMapping();
+		mapping.setBinary(new Foo().barsP);
+		Repository binary = repository.derive(mapping);
+
+		foo1 = binary.lookup(new Reference<>(foo1));
+		assertEquals(ids(bar1, bar2), ids(foo1.barsP.get()));
+		foo1.barsP.set(new ArrayList<>(foo1.barsP.get()));
+		binary.update(foo1);
+		assertEquals(Arrays.asList("blob", "text"), types());
+
+		Foo prototype = new Foo();
+		((BinaryPropoidsMapper) (Mapper<?>) binary.mapping.getMapper(binary, prototype.barsP)).migrate(binary, prototype.barsP);
+		assertEquals(Arrays.asList("blob", "blob"), types());
+
+		assertEquals(ids(bar1, bar2), ids(binary.lookup(new Reference<>(foo1)).barsP.get()));
+		assertEquals(ids(bar2), ids(binary.lookup(new Reference<>(foo2)).barsP.get()));
+	}
+
+	private List<Long> ids(Bar... bars) {
+		return ids(Arrays.asList(bars));
+	}
+
+	private List<Long> ids(List<Bar> bars) {
+		List<Long> ids = new ArrayList<>();
+		for (Bar bar : bars) {
+			ids.add(Row.getID(bar));
+		}
+		return ids;
+	}
+
+	private List<String> types() {
+		String table = repository.naming.table(repository, Foo.class);
+		Cursor cursor = repository.getDatabase().rawQuery("SELECT typeof(barsP) FROM \"" + table + "\" ORDER BY _id", new String[0]);
+		try {
+			List<String> types = new ArrayList<>();
+			while (cursor.moveToNext()) {
+				types.add(cursor.getString(0));
+			}
+			return types;
+		} finally {
+			cursor.close();
+		}
+	}
+}
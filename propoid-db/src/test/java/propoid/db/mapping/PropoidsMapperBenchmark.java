@@ -0,0 +1,88 @@
+package propoid.db.mapping;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Random;
+
+import propoid.db.BuildConfig;
+
+/**
+ * Benchmark for decoding of ids by {@link PropoidsMapper} and
+ * {@link BinaryPropoidsMapper}, and the size of encoded ids.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class PropoidsMapperBenchmark {
+
+	private static final int ROWS = 10000;
+
+	private static final int IDS = 20;
+
+	private static final int REPEAT = 10;
+
+	@Test
+	public void test() throws Exception {
+		PropoidsMapper mapper = new PropoidsMapper();
+
+		Random random = new Random(0);
+
+		String[] texts = new String[ROWS];
+		byte[][] blobs = new byte[ROWS][];
+		long textSize = 0;
+		long blobSize = 0;
+		for (int r = 0; r < ROWS; r++) {
+			long[] ids = new long[IDS];
+			long id = 100000 + random.nextInt(100000);
+			for (int i = 0; i < IDS; i++) {
+				id += 1 + random.nextInt(100);
+				ids[i] = id;
+			}
+
+			texts[r] = mapper.join(ids);
+			textSize += texts[r].length();
+
+			blobs[r] = BinaryPropoidsMapper.encode(ids);
+			blobSize += blobs[r].length;
+		}
+
+		// warm up
+		split(mapper, texts);
+		decode(blobs);
+
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < REPEAT; i++) {
+			split(mapper, texts);
+		}
+		long text = System.currentTimeMillis() - start;
+
+		start = System.currentTimeMillis();
+		for (int i = 0; i < REPEAT; i++) {
+			decode(blobs);
+		}
+		long blob = System.currentTimeMillis() - start;
+
+		System.out.println(String.format("decoded rows per second: %s text, %s binary",
+				ROWS * REPEAT * 1000l / Math.max(1, text), ROWS * REPEAT * 1000l / Math.max(1, blob)));
+		System.out.println(String.format("bytes per row: %s text, %s binary",
+				textSize / ROWS, blobSize / ROWS));
+	}
+
+	private long split(PropoidsMapper mapper, String[] texts) {
+		long sum = 0;
+		for (String text : texts) {
+			sum += mapper.split(text).length;
+		}
+		return sum;
+	}
+
+	private long decode(byte[][] blobs) {
+		long sum = 0;
+		for (byte[] blob : blobs) {
+			sum += BinaryPropoidsMapper.decode(blob).length;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,100 @@
+package propoid.db.observer;
+
+import android.database.ContentObserver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+
+import propoid.db.Repository;
+import propoid.db.Transaction;
+import propoid.db.locator.InMemoryLocator;
+import propoid.db.operation.Foo;
+import propoid.db.operation.Query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = propoid.db.BuildConfig.class)
+public class DefaultObserverTest {
+
+	private Repository repository;
+
+	private int changes;
+
+	private ContentObserver contentObserver = new ContentObserver(null) {
+		@Override
+		public void onChange(boolean selfChange) {
+			changes++;
+		}
+	};
+
+	@Before
+	public void setUp() throws Exception {
+		DefaultObserver observer = new DefaultObserver(RuntimeEnvironment.application, new Executor() {
+			@Override
+			public void execute(Runnable runnable) {
+				runnable.run();
+			}
+		});
+		observer.setThreshold(5);
+
+		repository = new Repository(RuntimeEnvironment.application, new InMemoryLocator(), observer);
+
+		RuntimeEnvironment.application.getContentResolver().registerContentObserver(Query.getUri(Foo.class), false, contentObserver);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		RuntimeEnvironment.application.getContentResolver().unregisterContentObserver(contentObserver);
+
+		repository.close();
+	}
+
+	@Test
+	public void testTransactional() throws Exception {
+		repository.transactional(new Transaction() {
+			@Override
+			public void doTransactional() {
+				for (int i = 0; i < 10; i++) {
+					repository.insert(new Foo());
+				}
+				repository.insertAll(Arrays.asList(new Foo(), new Foo()));
+
+				assertEquals(0, changes);
+			}
+		});
+
+		// collapsed to a single change of class
+		assertEquals(1, changes);
+	}
+
+	@Test
+	public void testRollback() throws Exception {
+		try {
+			repository.transactional(new Transaction() {
+				@Override
+				public void doTransactional() {
+					repository.insertAll(Arrays.asList(new Foo(), new Foo()));
+
+					throw new IllegalStateException();
+				}
+			});
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+
+		assertEquals(0, changes);
+
+		repository.insertAll(Arrays.asList(new Foo(), new Foo()));
+		assertEquals(1, changes);
+	}
+}
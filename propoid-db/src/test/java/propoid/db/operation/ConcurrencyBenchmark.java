@@ -0,0 +1,122 @@
+package propoid.db.operation;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import propoid.db.BuildConfig;
+import propoid.db.Repository;
+import propoid.db.Transaction;
+import propoid.db.locator.FileLocator;
+
+/**
+ * Benchmark for concurrent readers and a writer, with and without write-ahead
+ * logging.
+ * <p>
+ * Note that Robolectric serializes all database access, so run on a device
+ * for meaningful numbers.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class ConcurrencyBenchmark {
+
+	private static final int READERS = 3;
+
+	private static final int COUNT = 1000;
+
+	private static final int BATCH = 100;
+
+	private static final long DURATION = 2000;
+
+	@Test
+	public void test() throws Exception {
+		// warm up
+		run(false);
+
+		run(false);
+		run(true);
+	}
+
+	private void run(boolean writeAheadLogging) throws Exception {
+		File file = RuntimeEnvironment.application.getDatabasePath("concurrency");
+		delete(file);
+
+		FileLocator locator = new FileLocator(file);
+		locator.setWriteAheadLogging(writeAheadLogging);
+
+		final Repository repository = new Repository(RuntimeEnvironment.application, locator);
+		try {
+			insert(repository, COUNT);
+
+			final AtomicBoolean stop = new AtomicBoolean();
+			final AtomicLong reads = new AtomicLong();
+			final AtomicLong writes = new AtomicLong();
+
+			List<Thread> threads = new ArrayList<>();
+			for (int r = 0; r < READERS; r++) {
+				threads.add(new Thread() {
+					@Override
+					public void run() {
+						while (!stop.get()) {
+							repository.query(new Foo()).count();
+
+							reads.incrementAndGet();
+						}
+					}
+				});
+			}
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					while (!stop.get()) {
+						insert(repository, BATCH);
+
+						writes.addAndGet(BATCH);
+					}
+				}
+			});
+
+			for (Thread thread : threads) {
+				thread.start();
+			}
+			Thread.sleep(DURATION);
+			stop.set(true);
+			for (Thread thread : threads) {
+				thread.join();
+			}
+
+			System.out.println(String.format("write-ahead logging %s: queries per second %s, inserts per second %s",
+					writeAheadLogging, reads.get() * 1000 / DURATION, writes.get() * 1000 / DURATION));
+		} finally {
+			repository.close();
+
+			delete(file);
+		}
+	}
+
+	private void insert(final Repository repository, final int count) {
+		repository.transactional(new Transaction() {
+			@Override
+			public void doTransactional() {
+				for (int i = 0; i < count; i++) {
+					repository.insert(new Foo());
+				}
+			}
+		});
+	}
+
+	private void delete(File file) {
+		file.delete();
+		new File(file.getPath() + "-wal").delete();
+		new File(file.getPath() + "-shm").delete();
+		new File(file.getPath() + "-journal").delete();
+	}
+}
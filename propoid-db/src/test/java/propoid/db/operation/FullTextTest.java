@@ -0,0 +1,117 @@
+package propoid.db.operation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import propoid.db.BuildConfig;
+import propoid.db.Order;
+import propoid.db.Range;
+import propoid.db.Repository;
+import propoid.db.Where;
+import propoid.db.aspect.Row;
+import propoid.db.locator.InMemoryLocator;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test for {@link FullText}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class FullTextTest {
+
+	private Repository repository;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new Repository(RuntimeEnvironment.application, new InMemoryLocator());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		repository.close();
+	}
+
+	@Test
+	public void testMatches() throws Exception {
+		Foo existing = foo("quick brown fox");
+
+		Foo foo = new Foo();
+		repository.indexFullText(foo.stringP);
+		repository.indexFullText(foo.stringP);
+
+		Foo other = foo("lazy dog");
+
+		assertEquals(1, repository.query(foo, Where.matches(foo.stringP, "fox")).count());
+		assertEquals(Row.getID(existing), Row.getID(repository.query(foo, Where.matches(foo.stringP, "fox")).single()));
+		assertEquals(Row.getID(other), Row.getID(repository.query(foo, Where.matches(foo.stringP, "dog")).single()));
+		assertEquals(0, repository.query(foo, Where.matches(foo.stringP, "cat")).count());
+	}
+
+	@Test
+	public void testMatchesPrefix() throws Exception {
+		Foo foo = new Foo();
+		repository.indexFullText(foo.stringP);
+
+		foo("quick brown fox");
+		foo("quiet brown dog");
+
+		assertEquals("qu* bro*", Where.prefix(" qu, bro"));
+
+		assertEquals(2, repository.query(foo, Where.matchesPrefix(foo.stringP, "qu")).count());
+		assertEquals(1, repository.query(foo, Where.matchesPrefix(foo.stringP, "qui bro f")).count());
+	}
+
+	@Test
+	public void testSync() throws Exception {
+		Foo foo = new Foo();
+		repository.indexFullText(foo.stringP);
+
+		Foo fox = foo("quick brown fox");
+
+		fox.stringP.set("quick brown cat");
+		repository.update(fox);
+
+		assertEquals(0, repository.query(foo, Where.matches(foo.stringP, "fox")).count());
+		assertEquals(1, repository.query(foo, Where.matches(foo.stringP, "cat")).count());
+
+		repository.delete(fox);
+
+		assertEquals(0, repository.query(foo, Where.matches(foo.stringP, "cat")).count());
+	}
+
+	@Test
+	public void testRelevance() throws Exception {
+		Foo foo = new Foo();
+		repository.indexFullText(foo.stringP);
+
+		Foo one = foo("brown fox");
+		Foo two = foo("brown bear, brown fox");
+
+		String query = "brown OR fox";
+		List<Foo> foos = repository.query(foo, Where.matches(foo.stringP, query))
+				.list(Range.all(), Order.relevance(foo.stringP, query));
+
+		assertEquals(2, foos.size());
+		assertEquals(Row.getID(two), Row.getID(foos.get(0)));
+		assertEquals(Row.getID(one), Row.getID(foos.get(1)));
+
+		query = "bear";
+		assertEquals(1, repository.query(foo, Where.matches(foo.stringP, query))
+				.list(Range.all(), Order.relevance(foo.stringP, query)).toArray().length);
+	}
+
+	private Foo foo(String text) {
+		Foo foo = new Foo();
+		foo.stringP.set(text);
+		repository.insert(foo);
+		return foo;
+	}
+}
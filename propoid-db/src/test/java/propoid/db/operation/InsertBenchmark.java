@@ -0,0 +1,68 @@
+package propoid.db.operation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import propoid.db.BuildConfig;
+import propoid.db.Repository;
+import propoid.db.Transaction;
+import propoid.db.locator.InMemoryLocator;
+
+/**
+ * Benchmark for {@link Insert} with and without cached statements.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class InsertBenchmark {
+
+	private static final int COUNT = 2000;
+
+	private Repository repository;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new Repository(RuntimeEnvironment.application, new InMemoryLocator());
+
+		// warm up
+		insert(false);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		repository.close();
+	}
+
+	@Test
+	public void test() throws Exception {
+		long uncached = insert(false);
+		long cached = insert(true);
+
+		System.out.println(String.format("inserts per second: %s uncached, %s cached",
+				COUNT * 1000l / Math.max(1, uncached), COUNT * 1000l / Math.max(1, cached)));
+	}
+
+	private long insert(final boolean cached) {
+		long start = System.currentTimeMillis();
+
+		repository.transactional(new Transaction() {
+			@Override
+			public void doTransactional() {
+				for (int i = 0; i < COUNT; i++) {
+					repository.insert(new Foo());
+
+					if (!cached) {
+						// compile statement for each insert
+						repository.getStatements().clear();
+					}
+				}
+			}
+		});
+
+		return System.currentTimeMillis() - start;
+	}
+}
@@ -19,7 +19,12 @@ import org.robolectric.annotation.Config;
 
 import java.util.Arrays;
 
+import android.database.sqlite.SQLiteStatement;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Test for {@link Insert}.
@@ -67,6 +72,19 @@ public class InsertTest {
 		assertEquals(3, repository.query(new Bar()).count());
 	}
 
+	@Test
+	public void testInsertAll() throws Exception {
+		Foo foo1 = new Foo();
+		foo1.barP.set(new Bar());
+		Foo foo2 = new Foo();
+		foo2.barsP.set(Arrays.asList(new Bar(), new Bar()));
+
+		repository.insertAll(Arrays.asList(foo1, foo2, new FooEx()));
+
+		assertEquals(3, repository.query(new Foo()).count());
+		assertEquals(3, repository.query(new Bar()).count());
+	}
+
 	@Test
 	public void testFooEx() throws Exception {
 		repository.insert(new Foo());
@@ -89,4 +107,36 @@ public class InsertTest {
 		assertEquals(1, repository.query(new Foo()).count());
 		assertEquals(1, repository.query(new Bar()).count());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testStatementReused() throws Exception {
+		repository.insert(new Foo());
+
+		Statements.Key key = new Statements.Key(Insert.class, Foo.class, 0);
+
+		SQLiteStatement statement = repository.getStatements().acquire(key);
+		assertNotNull(statement);
+		repository.getStatements().release(key, statement);
+
+		repository.insert(new Foo());
+
+		assertSame(statement, repository.getStatements().acquire(key));
+	}
+
+	@Test
+	public void testStatementEvicted() throws Exception {
+		repository.insert(new Foo());
+
+		Statements statements = repository.getStatements();
+		Statements.Key key = new Statements.Key(Insert.class, Foo.class, 0);
+
+		for (int variant = 1; variant <= Statements.CAPACITY; variant++) {
+			Statements.Key other = new Statements.Key(Delete.class, Foo.class, variant);
+			statements.release(other, statements.compile(
+					repository.getDatabase(), other, "SELECT " + variant));
+		}
+
+		assertNull(statements.acquire(key));
+		assertNull(statements.sql(key));
+	}
+}
@@ -0,0 +1,156 @@
+package propoid.db.operation;
+
+import android.database.Cursor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import propoid.db.BuildConfig;
+import propoid.db.Reference;
+import propoid.db.Repository;
+import propoid.db.Transaction;
+import propoid.db.Where;
+import propoid.db.aspect.Row;
+import propoid.db.locator.InMemoryLocator;
+import propoid.db.mapping.DefaultMapping;
+import propoid.db.mapping.JoinedPropoidsMapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Test for {@link JoinedPropoidsMapper}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class JoinedPropoidsMapperTest {
+
+	private Repository repository;
+
+	private Repository joined;
+
+	private Bar bar1;
+
+	private Bar bar2;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new Repository(RuntimeEnvironment.application, new InMemoryLocator());
+
+		bar1 = new Bar();
+		repository.insert(bar1);
+		bar2 = new Bar();
+		repository.insert(bar2);
+
+		// stored as text
+		Foo foo = new Foo();
+		foo.barsP.set(Arrays.asList(bar1, null, bar2));
+		repository.insert(foo);
+		repository.insert(new Foo());
+
+		DefaultMapping mapping = new DefaultMapping();
+		mapping.setJoined(new Foo().barsP);
+		joined = repository.derive(mapping);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		repository.close();
+	}
+
+	@Test
+	public void testMigrate() throws Exception {
+		List<Foo> foos = new ArrayList<>(joined.query(new Foo()).list());
+		assertEquals(2, foos.size());
+
+		assertEquals(ids(Arrays.asList(bar1, null, bar2)), ids(foos.get(0).barsP.get()));
+		assertNull(foos.get(1).barsP.get());
+
+		assertEquals(3, count());
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+		Foo foo = new Foo();
+		foo.barsP.set(Arrays.asList(bar2));
+		joined.insert(foo);
+		assertEquals(4, count());
+
+		foo = joined.lookup(new Reference<>(foo));
+		List<Bar> bars = new ArrayList<>(foo.barsP.get());
+		bars.add(bar1);
+		foo.barsP.set(bars);
+		joined.update(foo);
+		assertEquals(5, count());
+
+		assertEquals(ids(Arrays.asList(bar2, bar1)), ids(joined.lookup(new Reference<>(foo)).barsP.get()));
+
+		joined.delete(foo);
+		assertEquals(3, count());
+
+		joined.query(new Foo()).delete();
+		assertEquals(0, count());
+	}
+
+	@Test
+	public void testWriteRolledBack() throws Exception {
+		try {
+			joined.transactional(new Transaction() {
+				@Override
+				public void doTransactional() {
+					Foo foo = new Foo();
+					foo.barsP.set(Arrays.asList(bar1, bar2));
+					joined.insert(foo);
+
+					throw new IllegalStateException();
+				}
+			});
+
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+		assertEquals(3, count());
+
+		Foo foo = new Foo();
+		foo.barsP.set(Arrays.asList(bar1));
+		joined.insert(foo);
+		assertEquals(4, count());
+	}
+
+	@Test
+	public void testHasOne() throws Exception {
+		Foo foo = new Foo();
+		Bar bar = new Bar();
+
+		assertEquals(1, joined.query(foo, Where.hasOne(foo.barsP, bar, Where.equal(bar.intP, 0))).count());
+		assertEquals(0, joined.query(foo, Where.hasOne(foo.barsP, bar, Where.equal(bar.intP, 1))).count());
+	}
+
+	private List<Long> ids(List<Bar> bars) {
+		List<Long> ids = new ArrayList<>();
+		for (Bar bar : bars) {
+			ids.add(bar == null ? null : Row.getID(bar));
+		}
+		return ids;
+	}
+
+	private int count() {
+		Cursor cursor = joined.getDatabase().rawQuery("SELECT count(*) FROM " + JoinedPropoidsMapper.table(joined, new Foo().barsP), new String[0]);
+		try {
+			cursor.moveToFirst();
+			return cursor.getInt(0);
+		} finally {
+			cursor.close();
+		}
+	}
+}
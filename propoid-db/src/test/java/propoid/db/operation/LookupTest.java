@@ -8,13 +8,20 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import propoid.core.Propoid;
 import propoid.db.BuildConfig;
 import propoid.db.Reference;
+import propoid.db.References;
 import propoid.db.Repository;
 import propoid.db.aspect.Row;
 import propoid.db.locator.InMemoryLocator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 /**
  * Test for {@link Lookup}.
@@ -58,4 +65,45 @@ public class LookupTest {
 
 		assertEquals(Row.getID(fooEx), Row.getID(repository.lookup(reference)));
 	}
+
+	@Test
+	public void testReferencesChunked() {
+		List<Foo> foos = new ArrayList<>();
+		for (int i = 0; i < Operation.MAX_ARGUMENTS * 2; i++) {
+			foos.add(new Foo());
+		}
+		repository.insertAll(foos);
+		Collections.reverse(foos);
+
+		List<Propoid> propoids = new Lookup(repository).now((References) References.from(foos));
+		assertEquals(foos.size(), propoids.size());
+		for (int i = 0; i < foos.size(); i++) {
+			assertEquals(Row.getID(foos.get(i)), Row.getID(propoids.get(i)));
+		}
+	}
+
+	@Test
+	public void testToMany() {
+		List<Bar> bars = new ArrayList<>();
+		for (int i = 0; i < Operation.MAX_ARGUMENTS + 1; i++) {
+			bars.add(new Bar());
+		}
+		repository.insertAll(bars);
+		Collections.reverse(bars);
+		bars.add(1, null);
+
+		Foo foo = new Foo();
+		foo.barsP.set(bars);
+		repository.insert(foo);
+
+		List<Bar> loaded = repository.lookup(new Reference<Foo>(foo)).barsP.get();
+		assertEquals(bars.size(), loaded.size());
+		for (int i = 0; i < bars.size(); i++) {
+			if (bars.get(i) == null) {
+				assertNull(loaded.get(i));
+			} else {
+				assertEquals(Row.getID(bars.get(i)), Row.getID(loaded.get(i)));
+			}
+		}
+	}
 }
\ No newline at end of file
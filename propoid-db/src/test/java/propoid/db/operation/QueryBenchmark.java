@@ -0,0 +1,98 @@
+package propoid.db.operation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import propoid.db.BuildConfig;
+import propoid.db.Repository;
+import propoid.db.Visitor;
+import propoid.db.locator.InMemoryLocator;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmark for hydration of {@link Foo}s by {@link Query}, listed and
+ * scanned.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class)
+public class QueryBenchmark {
+
+	private static final int COUNT = 50000;
+
+	private Repository repository;
+
+	@Before
+	public void setUp() throws Exception {
+		repository = new Repository(RuntimeEnvironment.application, new InMemoryLocator());
+
+		List<Foo> foos = new ArrayList<>();
+		for (int i = 0; i < COUNT; i++) {
+			foos.add(new Foo());
+		}
+		repository.insertAll(foos);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		repository.close();
+	}
+
+	@Test
+	public void test() throws Exception {
+		// warm up
+		hydrate();
+
+		long start = System.currentTimeMillis();
+
+		assertEquals(COUNT, hydrate());
+
+		long duration = System.currentTimeMillis() - start;
+
+		System.out.println(String.format("hydrated rows per second: %s",
+				COUNT * 1000l / Math.max(1, duration)));
+
+		// warm up
+		scan();
+
+		start = System.currentTimeMillis();
+
+		assertEquals(COUNT, scan());
+
+		duration = System.currentTimeMillis() - start;
+
+		System.out.println(String.format("scanned rows per second: %s",
+				COUNT * 1000l / Math.max(1, duration)));
+	}
+
+	private int scan() {
+		final int[] count = new int[1];
+
+		repository.query(new Foo()).scan(new Visitor<Foo>() {
+			@Override
+			public void visit(Foo foo) {
+				count[0]++;
+			}
+		});
+
+		return count[0];
+	}
+
+	private int hydrate() {
+		int count = 0;
+
+		for (Foo foo : repository.query(new Foo()).list()) {
+			count++;
+		}
+
+		return count;
+	}
+}
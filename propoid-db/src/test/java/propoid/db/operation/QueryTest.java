@@ -1,5 +1,7 @@
 package propoid.db.operation;
 
+import android.database.Cursor;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -8,20 +10,33 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 
+import propoid.core.PropertyAspect;
 import propoid.db.BuildConfig;
 import propoid.db.Order;
+import propoid.db.Range;
+import propoid.db.References;
 import propoid.db.Repository;
 import propoid.db.RepositoryException;
+import propoid.db.Visitor;
 import propoid.db.Where;
+import propoid.db.aspect.Row;
+import propoid.db.aspect.ToOneRelation;
 import propoid.db.cascading.DefaultCascading;
 import propoid.db.locator.InMemoryLocator;
 
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Test for {@link Query}.
@@ -63,6 +78,17 @@ public class QueryTest {
 		assertFalse(foos.hasNext());
 	}
 
+	@Test
+	public void testFooOffsetLimit() {
+		Foo foo = new Foo();
+
+		List<Foo> foos = repository.query(foo).list(Range.offsetLimit(1, 1), Order.ascendingByInsert());
+		assertEquals(1, foos.size());
+		assertTrue(foos.get(0).getClass() == FooEx.class);
+
+		assertEquals(0, repository.query(foo).list(Range.offsetLimit(2, 1)).size());
+	}
+
 	@Test
 	public void testFooEx() {
 
@@ -167,6 +193,172 @@ public class QueryTest {
 		assertEquals(1, repository.query(new Foo()).count());
 	}
 
+	@Test
+	public void testFooTypedArguments() {
+		Foo foo = new Foo();
+		foo.byteP.set((byte) -1);
+		foo.longP.set(10l);
+		foo.doubleP.set(0.5d);
+		foo.bytesP.set(new byte[] { 1, 2, 3 });
+		repository.insert(foo);
+
+		assertEquals(1, repository.query(foo, Where.greaterThan(foo.longP, 9l)).count());
+		assertEquals(1, repository.query(foo, Where.lessThan(foo.doubleP, 1d)).count());
+		assertEquals(1, repository.query(foo, Where.equal(foo.byteP, (byte) -1)).count());
+		assertEquals(1, repository.query(foo, Where.equal(foo.bytesP, new byte[] { 1, 2, 3 })).count());
+	}
+
+	@Test
+	public void testFooPlans() {
+		Cursor all = repository.getDatabase().rawQuery("SELECT * FROM Foo", new String[0]);
+		Cursor some = repository.getDatabase().rawQuery("SELECT _id, _type, intP FROM Foo", new String[0]);
+		try {
+			Plans plans = repository.getPlans();
+
+			Plans.Plan plan = plans.get(Foo.class, all, false);
+			assertSame(plan, plans.get(Foo.class, all, false));
+
+			// different layout is cached separately
+			Plans.Plan partial = plans.get(Foo.class, some, true);
+			assertNotSame(plan, partial);
+			assertSame(plan, plans.get(Foo.class, all, false));
+			assertSame(partial, plans.get(Foo.class, some, true));
+		} finally {
+			all.close();
+			some.close();
+		}
+	}
+
+	@Test
+	public void testFooPrefetch() {
+		Foo foo = new Foo();
+
+		Iterator<Foo> foos = repository.query(foo).prefetch(foo.barP).list().iterator();
+
+		Foo first = foos.next();
+		assertTrue(PropertyAspect.find(first.barP, ToOneRelation.class).loaded);
+		assertNotNull(first.barP.get());
+
+		Foo second = foos.next();
+		assertNull(second.barP.get());
+
+		assertFalse(foos.hasNext());
+	}
+
+	@Test
+	public void testFooAfter() {
+		for (String string : new String[] { "b", "A", "a", null, "c", "B" }) {
+			Foo foo = new Foo();
+			foo.stringP.set(string);
+			repository.insert(foo);
+		}
+
+		Foo foo = new Foo();
+		assertAfter(Order.ascending(foo.stringP), Order.ascendingByInsert());
+		assertAfter(Order.descending(foo.stringP), Order.ascendingByInsert());
+		assertAfter(Order.descending(foo.stringP), Order.descendingByInsert());
+	}
+
+	private void assertAfter(Order... ordering) {
+		Foo foo = new Foo();
+
+		List<Long> expected = new ArrayList<>();
+		for (Foo each : repository.query(foo).list(ordering)) {
+			expected.add(Row.getID(each));
+		}
+
+		List<Long> actual = new ArrayList<>();
+		Range range = Range.limit(3);
+		while (true) {
+			Foo last = null;
+			for (Foo each : repository.query(foo).list(range, ordering)) {
+				actual.add(Row.getID(each));
+				last = each;
+			}
+			if (last == null) {
+				break;
+			}
+			range = Range.afterLimit(last, 3, ordering);
+		}
+
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testFooStream() {
+		List<Foo> foos = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			foos.add(new Foo());
+		}
+		repository.insertAll(foos);
+
+		Foo foo = new Foo();
+
+		List<Long> expected = new ArrayList<>();
+		for (Foo each : repository.query(foo).list(Order.ascendingByInsert())) {
+			expected.add(Row.getID(each));
+		}
+
+		List<Long> actual = new ArrayList<>();
+		for (Foo each : repository.query(foo).stream(3)) {
+			actual.add(Row.getID(each));
+		}
+		assertEquals(expected, actual);
+
+		final List<Long> visited = new ArrayList<>();
+		repository.query(foo).forEach(new Visitor<Foo>() {
+			@Override
+			public void visit(Foo each) {
+				visited.add(Row.getID(each));
+			}
+		});
+		assertEquals(expected, visited);
+	}
+
+	@Test
+	public void testFooScan() {
+		repository.insert(new Foo());
+
+		final List<Long> ids = new ArrayList<>();
+		final List<Foo> instances = new ArrayList<>();
+		repository.query(new Foo()).scan(new Visitor<Foo>() {
+			@Override
+			public void visit(Foo each) {
+				ids.add(Row.getID(each));
+				if (each.getClass() == Foo.class) {
+					instances.add(each);
+				}
+			}
+		});
+
+		assertEquals(3, ids.size());
+		assertEquals(3, new HashSet<>(ids).size());
+
+		assertEquals(2, instances.size());
+		assertSame(instances.get(0), instances.get(1));
+	}
+
+	@Test
+	public void testFooColumns() {
+		Foo foo = new Foo();
+		foo.longP.set(7l);
+		foo.doubleP.set(0.5d);
+		foo.stringP.set("A");
+		repository.insert(foo);
+
+		long[] ids = repository.query(foo).ids(Order.descendingByInsert());
+		assertEquals(3, ids.length);
+		assertEquals(Row.getID(foo), ids[0]);
+
+		References<Foo> references = repository.query(foo).references();
+		assertEquals(new References<>(Foo.class, repository.query(foo).ids()), references);
+
+		Where where = Where.equal(foo.stringP, "A");
+		assertEquals(7l, repository.query(foo, where).longs(foo.longP)[0]);
+		assertEquals(0.5d, repository.query(foo, where).doubles(foo.doubleP)[0], 0d);
+		assertEquals("A", repository.query(foo, where).strings(foo.stringP)[0]);
+	}
+
 	@Test
 	public void testFooSingle() {
 		try {
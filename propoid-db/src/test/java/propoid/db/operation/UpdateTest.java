@@ -1,7 +1,13 @@
 package propoid.db.operation;
 
+import propoid.core.PropertyAspect;
+import propoid.core.Propoid;
 import propoid.db.BuildConfig;
+import propoid.db.Observer;
 import propoid.db.Repository;
+import propoid.db.Transaction;
+import propoid.db.aspect.Row;
+import propoid.db.aspect.LazyColumn;
 import propoid.db.cascading.DefaultCascading;
 import propoid.db.locator.InMemoryLocator;
 import propoid.db.operation.Update;
@@ -20,6 +26,9 @@ import java.util.Arrays;
 import java.util.Collections;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
 
 /**
  * Test for {@link Update}.
@@ -57,6 +66,18 @@ public class UpdateTest {
 		assertEquals(0, repository.query(new Bar()).count());
 	}
 
+	@Test
+	public void testMergeAll() throws Exception {
+
+		Foo foo = repository.query(new Foo()).single();
+		foo.barP.set(new Bar());
+
+		repository.mergeAll(Arrays.asList(foo, new Foo()));
+
+		assertEquals(2, repository.query(new Foo()).count());
+		assertEquals(1, repository.query(new Bar()).count());
+	}
+
 	@Test
 	public void testFooWithBar() throws Exception {
 
@@ -85,4 +106,98 @@ public class UpdateTest {
 		assertEquals(1, repository.query(new Foo()).count());
 		assertEquals(0, repository.query(new Bar()).count());
 	}
+
+	@Test
+	public void testRolledBack() throws Exception {
+		final Foo foo = repository.query(new Foo()).single();
+		final Bar bar = new Bar();
+
+		try {
+			repository.transactional(new Transaction() {
+				@Override
+				public void doTransactional() {
+					foo.intP.set(1);
+					foo.barP.set(bar);
+					repository.update(foo);
+
+					throw new IllegalStateException();
+				}
+			});
+
+			fail();
+		} catch (IllegalStateException expected) {
+		}
+		assertEquals(Row.TRANSIENT, Row.getID(bar));
+
+		repository.update(foo);
+
+		Foo updated = repository.query(new Foo()).single();
+		assertEquals(Integer.valueOf(1), updated.intP.get());
+		assertEquals(1, repository.query(new Bar()).count());
+	}
+
+	@Test
+	public void testDirty() throws Exception {
+		final int[] updates = new int[1];
+		Repository repository = this.repository.derive(new Observer() {
+			public void onInsert(Propoid propoid) {
+			}
+
+			public void onDelete(Propoid propoid) {
+			}
+
+			public void onUpdate(Propoid propoid) {
+				updates[0]++;
+			}
+		});
+
+		Foo foo1 = repository.query(new Foo()).single();
+		Foo foo2 = repository.query(new Foo()).single();
+
+		repository.update(foo1);
+		repository.updateAll(Arrays.asList(foo1, foo2));
+		assertEquals(0, updates[0]);
+
+		foo1.intP.set(1);
+		foo2.stringP.set("A");
+		repository.update(foo1);
+		repository.update(foo2);
+		assertEquals(2, updates[0]);
+
+		repository.update(foo1);
+		assertEquals(2, updates[0]);
+
+		foo1.intP.set(2);
+		foo2.stringP.set("B");
+		repository.updateAll(Arrays.asList(foo1, foo2));
+		assertEquals(4, updates[0]);
+
+		Foo updated = repository.query(new Foo()).single();
+		assertEquals(Integer.valueOf(2), updated.intP.get());
+		assertEquals("B", updated.stringP.get());
+	}
+
+	@Test
+	public void testPartial() throws Exception {
+		Foo foo = repository.query(new Foo()).single();
+		foo.intP.set(1);
+		foo.stringP.set("A");
+		foo.barP.set(new Bar());
+		repository.update(foo);
+
+		Foo prototype = new Foo();
+		Foo partial = repository.query(prototype).select(prototype.intP).single();
+		assertFalse(PropertyAspect.find(partial.stringP, LazyColumn.class).loaded);
+
+		partial.intP.set(2);
+		repository.update(partial);
+
+		Foo updated = repository.query(new Foo()).single();
+		assertEquals(Integer.valueOf(2), updated.intP.get());
+		assertEquals("A", updated.stringP.get());
+		assertNotNull(updated.barP.get());
+
+		assertEquals("A", partial.stringP.get());
+		assertNotNull(partial.barP.get());
+	}
 }
\ No newline at end of file
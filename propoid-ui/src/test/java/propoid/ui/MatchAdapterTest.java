@@ -20,11 +20,14 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import propoid.core.Property;
+import propoid.core.Propoid;
 import propoid.db.Match;
 import propoid.db.Order;
+import propoid.db.QueryPlan;
 import propoid.db.Range;
 import propoid.db.References;
 import propoid.db.RepositoryException;
+import propoid.db.Visitor;
 import propoid.db.operation.Query;
 import propoid.ui.list.MatchListAdapter;
 
@@ -100,6 +103,34 @@ public class MatchAdapterTest {
 				return null;
 			}
 
+			@Override
+			public long[] ids(Order... ordering) {
+				fail();
+
+				return null;
+			}
+
+			@Override
+			public long[] longs(Property<?> property, Order... ordering) {
+				fail();
+
+				return null;
+			}
+
+			@Override
+			public double[] doubles(Property<?> property, Order... ordering) {
+				fail();
+
+				return null;
+			}
+
+			@Override
+			public String[] strings(Property<?> property, Order... ordering) {
+				fail();
+
+				return null;
+			}
+
 			@Override
 			public Foo first(Order... ordering) {
 				fail();
@@ -156,6 +187,44 @@ public class MatchAdapterTest {
 			public <T> void set(Property<T> property, T value) {
 				fail();
 			}
+
+			@Override
+			public Match<Foo> prefetch(Property<? extends Propoid> property) {
+				fail();
+
+				return null;
+			}
+
+			@Override
+			public Match<Foo> select(Property<?>... properties) {
+				fail();
+
+				return null;
+			}
+
+			@Override
+			public Iterable<Foo> stream(int batchSize) {
+				fail();
+
+				return null;
+			}
+
+			@Override
+			public void forEach(Visitor<Foo> visitor) {
+				fail();
+			}
+
+			@Override
+			public void scan(Visitor<Foo> visitor) {
+				fail();
+			}
+
+			@Override
+			public QueryPlan explain(Order... ordering) {
+				fail();
+
+				return null;
+			}
 		};
 
 		MatchListAdapter<Foo> adapter = new MatchListAdapter<Foo>(match) {